@@ -66,7 +66,8 @@ public class PersistenceJPAConfig {
 	public DataSource dataSource() {
 		DriverManagerDataSource dataSource = new DriverManagerDataSource();
 		dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-		dataSource.setUrl("jdbc:mysql://localhost:3306/pav_shop");
+		// rewriteBatchedStatements: driver gộp các lệnh trong batch thành một câu INSERT nhiều dòng
+		dataSource.setUrl("jdbc:mysql://localhost:3306/pav_shop?rewriteBatchedStatements=true");
 		dataSource.setUsername("root");
 		dataSource.setPassword("123456");
 		return dataSource;
@@ -106,6 +107,10 @@ public class PersistenceJPAConfig {
 		properties.setProperty("hibernate.hbm2ddl.auto", "update");
 		properties.setProperty("hibernate.show_sql", "true");
 		properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL8Dialect");
+		// gom các câu INSERT / UPDATE cùng bảng thành batch (entity dùng khoá IDENTITY vẫn phải insert từng dòng)
+		properties.setProperty("hibernate.jdbc.batch_size", "50");
+		properties.setProperty("hibernate.order_inserts", "true");
+		properties.setProperty("hibernate.order_updates", "true");
 		return properties;
 	}
 }
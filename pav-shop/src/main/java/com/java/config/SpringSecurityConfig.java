@@ -10,6 +10,7 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import com.java.service.PavShopService;
+import com.java.service.impl.CompactShoppingCartService;
 
 //@Configuration: Đánh dấu rằng lớp được chú thích là một lớp cấu hình trong Spring. 
 //Nó cho biết rằng lớp này chứa các cấu hình bean và nó sẽ được quản lý bởi Spring.
@@ -27,6 +28,9 @@ public class SpringSecurityConfig extends WebSecurityConfigurerAdapter {
 	@Autowired
 	private PavShopService pavShopService;
 
+	@Autowired
+	private SuccessHandler successHandler;
+
 	@Bean
 	public BCryptPasswordEncoder passwordEncoder() {
 		BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder();
@@ -92,7 +96,7 @@ public class SpringSecurityConfig extends WebSecurityConfigurerAdapter {
 			//Cung cấp một đối tượng SuccessHandler để xử lý sau khi đăng nhập thành công. 
 			//SuccessHandler là một lớp do người dùng tự triển khai để xử lý logic sau khi đăng nhập thành công.
 			//.failureUrl("/login?error=true"): Đặt URL để chuyển hướng sau khi đăng nhập thất bại.
-			.successHandler(new SuccessHandler()).failureUrl("/login?error=true")//
+			.successHandler(successHandler).failureUrl("/login?error=true")//
 			//.usernameParameter("customerId"): Đặt tên tham số dùng để nhận giá trị tên đăng nhập từ form đăng nhập. 
 			//Trong trường hợp này, tên đăng nhập được gửi qua form dùng tham số "customerId".
 			.usernameParameter("customerId")//
@@ -102,7 +106,9 @@ public class SpringSecurityConfig extends WebSecurityConfigurerAdapter {
 			//.and().logout().logoutUrl("/logout").logoutSuccessUrl("/"): Cấu hình cho trang đăng xuất. 
 			//.logoutUrl("/logout") định nghĩa URL để xử lý yêu cầu đăng xuất, 
 			//.logoutSuccessUrl("/") đặt URL để chuyển hướng sau khi đăng xuất thành công về trang gốc ("/").
-			.and().logout().logoutUrl("/logout").logoutSuccessUrl("/");
+			// xoá cookie giỏ hàng: giỏ của khách đã nằm trong customer_carts, người dùng sau trên máy này bắt đầu giỏ mới
+			.and().logout().logoutUrl("/logout").logoutSuccessUrl("/")
+			.deleteCookies(CompactShoppingCartService.CART_COOKIE);
 		
 		//Bằng cách cấu hình rememberMeParameter("remember"), bạn định nghĩa tên tham số 
 		//trong form đăng nhập mà người dùng sẽ sử dụng để bật 
@@ -1,10 +1,15 @@
 package com.java.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.DefaultRedirectStrategy;
 import org.springframework.security.web.RedirectStrategy;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.stereotype.Component;
+
+import com.java.entity.Customer;
+import com.java.service.ShoppingCartService;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -16,7 +21,13 @@ import java.util.Collection;
 //sau khi xác thực thành công. Nó định nghĩa một phương thức onAuthenticationSuccess() mà bạn cần triển khai. 
 //Phương thức này sẽ được gọi khi người dùng đăng nhập thành công và sẽ nhận đối tượng Authentication 
 //chứa thông tin về người dùng đã đăng nhập.
+@Component
 public class SuccessHandler implements AuthenticationSuccessHandler {
+
+	// giỏ hàng của session hiện tại (session scope), gộp với giỏ đã lưu của khách khi đăng nhập
+	@Autowired
+	ShoppingCartService shoppingCartService;
+
 	//RedirectStrategy là một interface được sử dụng để xử lý chuyển hướng (redirect) 
 	//trong các kịch bản liên quan đến bảo mật. 
 	//Nó cung cấp các phương thức để xử lý chuyển hướng và định dạng URL chuyển hướng.
@@ -48,6 +59,9 @@ public class SuccessHandler implements AuthenticationSuccessHandler {
 				break;
 			}
 		}
+		if (authentication.getPrincipal() instanceof Customer) {
+			shoppingCartService.attachCustomer(((Customer) authentication.getPrincipal()).getCustomerId());
+		}
 		if (hasRoleUser) {
 			redirectStrategy.sendRedirect(httpServletRequest, httpServletResponse, "/cartItem");
 		} else if (hasAdmin) {
@@ -0,0 +1,104 @@
+package com.java.controller;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.java.entity.CartItem;
+import com.java.entity.CartSummary;
+import com.java.entity.Product;
+import com.java.repository.ProductRepository;
+import com.java.service.ShoppingCartService;
+import com.java.service.StockReservationService;
+
+// API giỏ hàng (JSON) cho badge ở header / mini-cart: thêm, sửa số lượng, xoá, xem tổng hợp.
+// Không kế thừa CommonController và không render trang nên mỗi thao tác chỉ chạm tới giỏ hàng,
+// kết quả luôn là CartSummary chạy của giỏ (O(1), không truy vấn Product / giá), giá được làm mới ở trang giỏ hàng / checkout.
+// 404: sản phẩm không tồn tại / chưa có trong giỏ, 409: không đủ hàng (kèm CartSummary hiện tại).
+@RestController
+@RequestMapping(value = "/api/cart")
+public class CartApiController {
+
+	private static final int MAX_QUANTITY = 999;
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	StockReservationService stockReservationService;
+
+	@Autowired
+	ShoppingCartService shoppingCartService;
+
+	@GetMapping
+	public CartSummary summary() {
+		return shoppingCartService.getSummary();
+	}
+
+	@PostMapping(value = "/items")
+	public ResponseEntity<CartSummary> add(@RequestParam("productId") Integer productId,
+			@RequestParam(value = "quantity", defaultValue = "1") int quantity, HttpServletRequest request) {
+		if (quantity < 1 || quantity > MAX_QUANTITY) {
+			return ResponseEntity.badRequest().body(summary());
+		}
+		Product product = productRepository.findById(productId).orElse(null);
+		if (product == null) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(summary());
+		}
+		if (!stockReservationService.reserve(request.getSession().getId(), productId, quantity)) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(summary());
+		}
+		CartItem item = new CartItem();
+		BeanUtils.copyProperties(product, item);
+		item.setUnitPrice(product.getPrice());
+		item.setQuantity(quantity);
+		item.setProduct(product);
+		item.setProductId(productId);
+		shoppingCartService.add(item);
+		return ResponseEntity.ok(summary());
+	}
+
+	// quantity = 0 coi như xoá dòng
+	@PutMapping(value = "/items/{productId}")
+	public ResponseEntity<CartSummary> update(@PathVariable("productId") Integer productId,
+			@RequestParam("quantity") int quantity, HttpServletRequest request) {
+		if (quantity == 0) {
+			return remove(productId, request);
+		}
+		if (quantity < 0 || quantity > MAX_QUANTITY) {
+			return ResponseEntity.badRequest().body(summary());
+		}
+		String owner = request.getSession().getId();
+		int held = stockReservationService.reserved(owner, productId);
+		if (!stockReservationService.reserveExactly(owner, productId, quantity)) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(summary());
+		}
+		if (!shoppingCartService.update(productId, quantity)) {
+			// không có trong giỏ: trả lại phần vừa giữ
+			stockReservationService.reserveExactly(owner, productId, held);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(summary());
+		}
+		return ResponseEntity.ok(summary());
+	}
+
+	@DeleteMapping(value = "/items/{productId}")
+	public ResponseEntity<CartSummary> remove(@PathVariable("productId") Integer productId,
+			HttpServletRequest request) {
+		CartItem item = new CartItem();
+		item.setProductId(productId);
+		shoppingCartService.remove(item);
+		stockReservationService.release(request.getSession().getId(), productId);
+		return ResponseEntity.ok(summary());
+	}
+}
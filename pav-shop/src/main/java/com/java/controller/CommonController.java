@@ -2,6 +2,7 @@ package com.java.controller;
 
 import java.security.Principal;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,12 +12,14 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
 
-import com.java.entity.Brand;
+import com.java.entity.BrandMenuItem;
 import com.java.entity.CartItem;
-import com.java.entity.Category;
+import com.java.entity.CartSummary;
+import com.java.entity.CategoryMenuItem;
 import com.java.entity.Customer;
 import com.java.repository.BrandRepository;
 import com.java.repository.CategoryRepository;
+import com.java.service.CatalogMenuCache;
 import com.java.service.ShoppingCartService;
 
 @Controller
@@ -32,6 +35,9 @@ public class CommonController {
 	@Autowired
 	BrandRepository brandRepository;
 
+	@Autowired
+	CatalogMenuCache catalogMenuCache;
+
 	@ModelAttribute(value = "customer")
 	public Customer initCustomer(Principal principal) {
 		Customer customer = new Customer();
@@ -43,17 +49,18 @@ public class CommonController {
 	}
 
 	
+	// menu thể loại / nhãn hiệu lấy từ cache, không truy vấn lại mỗi request
 	@ModelAttribute("categoryList")
-	public List<Category> showCategory(Model model) {
-		List<Category> categoryList = categoryRepository.findAll();
+	public List<CategoryMenuItem> showCategory(Model model) {
+		List<CategoryMenuItem> categoryList = catalogMenuCache.categories();
 		model.addAttribute("categoryList", categoryList);
 
 		return categoryList;
 	}
 
 	@ModelAttribute("brandList")
-	public List<Brand> brandList(Model model) {
-		List<Brand> brandList = brandRepository.findAll();
+	public List<BrandMenuItem> brandList(Model model) {
+		List<BrandMenuItem> brandList = catalogMenuCache.brands();
 		model.addAttribute("brandList", brandList);
 
 		return brandList;
@@ -62,17 +69,16 @@ public class CommonController {
 	// active - font-end cart->header
 	@ModelAttribute("cartItems")
 	public Collection<CartItem> cartItems2(Model model) {
-		Collection<CartItem> cartItems = shoppingCartService.getCartItems();
+		// tổng chạy của giỏ (O(1), không truy vấn giá), giá đã lưu được làm mới ở trang giỏ hàng / checkout
+		CartSummary summary = shoppingCartService.getSummary();
+		// giỏ rỗng thì không cần dựng danh sách CartItem cho dropdown
+		Collection<CartItem> cartItems = summary.getCount() == 0 ? Collections.<CartItem>emptyList()
+				: shoppingCartService.getCartItems();
 		model.addAttribute("cartItems", cartItems);
-		model.addAttribute("total", shoppingCartService.getAmount());
-		double totalPrice = 0;
-		for (CartItem cartItem : cartItems) {
-			double price = cartItem.getQuantity() * cartItem.getProduct().getPrice();
-			totalPrice += price - (price * cartItem.getProduct().getDiscount() / 100);
-		}
-
-		model.addAttribute("totalPrice", totalPrice);
-		model.addAttribute("totalCartItems", shoppingCartService.getCount());
+		model.addAttribute("cartSummary", summary);
+		model.addAttribute("total", summary.getAmount());
+		model.addAttribute("totalPrice", summary.getTotalPrice());
+		model.addAttribute("totalCartItems", summary.getCount());
 
 		return cartItems;
 	}
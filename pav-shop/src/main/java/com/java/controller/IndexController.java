@@ -10,17 +10,17 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 
 import com.java.entity.OrderDetail;
 import com.java.entity.Product;
-import com.java.repository.OrderDetailRepository;
-import com.java.repository.ProductRepository;
+import com.java.service.HomePageSnapshot;
+import com.java.service.TrendingProducts;
 
 @Controller
 public class IndexController extends CommonController {
 
 	@Autowired
-	ProductRepository productRepository;
+	HomePageSnapshot homePageSnapshot;
 
 	@Autowired
-	OrderDetailRepository orderDetailRepository;
+	TrendingProducts trendingProducts;
 
 	@GetMapping(value = "/")
 	public String index(Model model) {
@@ -29,10 +29,10 @@ public class IndexController extends CommonController {
 		return "site/index";
 	}
 
-	// list product ở trang chủ limit 8 sản phẩm mới nhất
+	// list product ở trang chủ limit 8 sản phẩm mới nhất, đọc từ snapshot dựng sẵn
 	@ModelAttribute("listProduct8")
 	public List<Product> listproduct10(Model model) {
-		List<Product> productList = productRepository.listProduct8();
+		List<Product> productList = homePageSnapshot.newestProducts();
 		model.addAttribute("productList", productList);
 
 		return productList;
@@ -42,8 +42,12 @@ public class IndexController extends CommonController {
     public String reporttop(Model model) {
         OrderDetail orderDetail = new OrderDetail();
         model.addAttribute("orderDetail", orderDetail);
-        List<Object[]> topOrderList =  orderDetailRepository.topOrder();
+        List<Object[]> topOrderList =  trendingProducts.top(TrendingProducts.ALL);
         model.addAttribute("topOrderList", topOrderList);
+        // đang thịnh hành: bán nhiều nhất trong 1 giờ / 24 giờ / 7 ngày qua
+        model.addAttribute("trendingHour", trendingProducts.top(TrendingProducts.HOUR));
+        model.addAttribute("trendingDay", trendingProducts.top(TrendingProducts.DAY));
+        model.addAttribute("trendingWeek", trendingProducts.top(TrendingProducts.WEEK));
         return "topOrder";
     }
 	
@@ -0,0 +1,27 @@
+package com.java.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.java.entity.OrderIntakeStatus;
+import com.java.service.OrderIntakeQueue;
+
+// Trạng thái đơn hàng gửi qua hàng đợi (JSON), trang checkout_success poll endpoint này
+@RestController
+public class OrderStatusController {
+
+	@Autowired
+	OrderIntakeQueue orderIntakeQueue;
+
+	@GetMapping(value = "/orderStatus")
+	public ResponseEntity<OrderIntakeStatus> status(@RequestParam("reference") String reference) {
+		OrderIntakeStatus status = orderIntakeQueue.status(reference);
+		if (status == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(status);
+	}
+}
@@ -0,0 +1,29 @@
+package com.java.controller;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.java.entity.ProductSuggestion;
+import com.java.service.ProductSuggester;
+
+// Gợi ý tìm kiếm khi gõ (JSON) cho ô search ở header.
+// Không kế thừa CommonController để mỗi phím gõ không kéo theo truy vấn category / brand / giỏ hàng.
+@RestController
+public class SearchSuggestController {
+
+	private static final int MAX_LIMIT = 20;
+
+	@Autowired
+	ProductSuggester productSuggester;
+
+	@GetMapping(value = "/searchSuggest")
+	public List<ProductSuggestion> suggest(@RequestParam("q") String q, @RequestParam("limit") Optional<Integer> limit) {
+
+		return productSuggester.suggest(q, Math.min(Math.max(limit.orElse(8), 1), MAX_LIMIT));
+	}
+}
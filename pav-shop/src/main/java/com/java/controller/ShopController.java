@@ -1,6 +1,10 @@
 package com.java.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -8,107 +12,272 @@ import java.util.stream.IntStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 
 import com.java.entity.Product;
+import com.java.entity.ProductFacets;
 import com.java.repository.ProductRepository;
+import com.java.service.ProductCursor;
+import com.java.service.ProductFacetIndex;
+import com.java.service.ProductFilter;
+import com.java.service.ProductSearchIndex;
 
 @Controller
 public class ShopController extends CommonController{
 	
+	private static final int DEFAULT_PAGE_SIZE = 9;
+
+	// ?size= lớn không được biến truy vấn keyset / slice / trang lọc thành nạp cả bảng vào bộ nhớ
+	private static final int MAX_PAGE_SIZE = 60;
+
 	@Autowired
 	ProductRepository productRepository;
 
+	@Autowired
+	ProductSearchIndex productSearchIndex;
+
+	@Autowired
+	ProductFacetIndex productFacetIndex;
+
 	@GetMapping(value = "/products")
 	public String shop(Model model, Pageable pageable, @RequestParam("page") Optional<Integer> page,
-			@RequestParam("size") Optional<Integer> size) {
+			@RequestParam("size") Optional<Integer> size, @RequestParam("after") Optional<String> after) {
 		
-		int currentPage = page.orElse(1);
-		int pageSize = size.orElse(9);
+		int currentPage = Math.max(page.orElse(1), 1);
+		int pageSize = pageSize(size);
 
-		Page<Product> productPage = findPaginated(PageRequest.of(currentPage - 1, pageSize));
+		// chế độ keyset: "xem thêm" / trang sâu không dùng OFFSET
+		if (after.isPresent()) {
+			findAfter(model, null, null, after.get(), pageSize, "/products");
+			listCategoryByProductName(model);
 
-		int totalPages = productPage.getTotalPages();
-		if (totalPages > 0) {
-			List<Integer> pageNumbers = IntStream.rangeClosed(1, totalPages).boxed().collect(Collectors.toList());
-			model.addAttribute("pageNumbers", pageNumbers);
+			return "site/shop";
 		}
 
-		model.addAttribute("productList", productPage);
+		Page<Product> productPage = findPaginated(PageRequest.of(currentPage - 1, pageSize));
+
+		showPage(model, productPage, "/products");
+		showNextCursor(model, productPage);
 		listCategoryByProductName(model);
 
 		return "site/shop";
 	}
 	
+	// phân trang ngay dưới DB, chỉ tải đúng một trang sản phẩm
 	public Page<Product> findPaginated(Pageable pageable) {
 
-		List<Product> productPage = productRepository.findAll();
+		return productRepository.listProductPage(pageable);
+	}
 
-		int pageSize = pageable.getPageSize();
-		int currentPage = pageable.getPageNumber();
-		int startItem = currentPage * pageSize;
-		List<Product> list;
+	// kích thước trang dùng chung cho mọi danh sách sản phẩm, trong khoảng [1, MAX_PAGE_SIZE]
+	private static int pageSize(Optional<Integer> size) {
+		return Math.min(Math.max(size.orElse(DEFAULT_PAGE_SIZE), 1), MAX_PAGE_SIZE);
+	}
 
-		if (productPage.size() < startItem) {
-			list = Collections.emptyList();
+	// đưa một trang sản phẩm ra view: Page có tổng số trang, Slice chỉ có trang trước / sau
+	public void showPage(Model model, Slice<Product> productPage, String pageUrl) {
+
+		if (productPage instanceof Page) {
+			int totalPages = ((Page<Product>) productPage).getTotalPages();
+			if (totalPages > 0) {
+				List<Integer> pageNumbers = IntStream.rangeClosed(1, totalPages).boxed().collect(Collectors.toList());
+				model.addAttribute("pageNumbers", pageNumbers);
+			}
 		} else {
-			int toIndex = Math.min(startItem + pageSize, productPage.size());
-			list = productPage.subList(startItem, toIndex);
+			if (productPage.hasPrevious()) {
+				model.addAttribute("prevPage", productPage.getNumber());
+			}
+			if (productPage.hasNext()) {
+				model.addAttribute("nextPage", productPage.getNumber() + 2);
+			}
 		}
 
-		Page<Product> productPages = new PageImpl<Product>(list, PageRequest.of(currentPage, pageSize),
-				productPage.size());
+		model.addAttribute("productList", productPage);
+		model.addAttribute("pageSize", productPage.getSize());
+		model.addAttribute("pageUrl", pageUrl);
+	}
+	
+	// phân trang keyset: tìm thẳng tới con trỏ after, lấy dư 1 dòng để biết còn trang sau
+	public List<Product> findAfter(Model model, Integer categoryId, Integer brandId, String after, int pageSize,
+			String pageUrl) {
+
+		List<Product> products = seek(categoryId, brandId, ProductCursor.decode(after), pageSize + 1);
+
+		if (products.size() > pageSize) {
+			products = products.subList(0, pageSize);
+			model.addAttribute("nextCursor", ProductCursor.of(products.get(pageSize - 1)).encode());
+		}
+		model.addAttribute("productList", products);
+		model.addAttribute("pageSize", pageSize);
+		model.addAttribute("pageUrl", pageUrl);
+
+		return products;
+	}
 
-		return productPages;
+	// trang OFFSET theo thứ tự catalog: link "Xem thêm" đi tiếp bằng con trỏ của sản phẩm cuối trang,
+	// các trang sâu hơn không còn OFFSET
+	public void showNextCursor(Model model, Slice<Product> productPage) {
+		if (productPage.hasNext() && productPage.hasContent()) {
+			List<Product> content = productPage.getContent();
+			model.addAttribute("nextCursor", ProductCursor.of(content.get(content.size() - 1)).encode());
+		}
+	}
+
+	// tối đa limit sản phẩm sau con trỏ (null = từ đầu): hết sản phẩm có ngày nhập thì đọc tiếp vùng chưa có ngày nhập
+	private List<Product> seek(Integer categoryId, Integer brandId, ProductCursor cursor, int limit) {
+		if (cursor != null && cursor.getEnteredDate() == null) {
+			return seekUndated(categoryId, brandId, cursor.getProductId(), limit);
+		}
+		Pageable pageable = PageRequest.of(0, limit);
+		List<Product> products;
+		if (cursor == null) {
+			products = categoryId != null ? productRepository.seekProductByCategory(categoryId, pageable)
+					: brandId != null ? productRepository.seekProductByBrand(brandId, pageable)
+							: productRepository.seekProduct(pageable);
+		} else {
+			Date enteredDate = cursor.getEnteredDate();
+			int productId = cursor.getProductId();
+			products = categoryId != null
+					? productRepository.seekProductByCategoryAfter(categoryId, enteredDate, productId, pageable)
+					: brandId != null ? productRepository.seekProductByBrandAfter(brandId, enteredDate, productId, pageable)
+							: productRepository.seekProductAfter(enteredDate, productId, pageable);
+		}
+		if (products.size() < limit) {
+			List<Product> page = new ArrayList<Product>(products);
+			page.addAll(seekUndated(categoryId, brandId, Integer.MAX_VALUE, limit - products.size()));
+			return page;
+		}
+		return products;
+	}
+
+	private List<Product> seekUndated(Integer categoryId, Integer brandId, int productId, int limit) {
+		Pageable pageable = PageRequest.of(0, limit);
+		return categoryId != null ? productRepository.seekUndatedProductByCategoryAfter(categoryId, productId, pageable)
+				: brandId != null ? productRepository.seekUndatedProductByBrandAfter(brandId, productId, pageable)
+						: productRepository.seekUndatedProductAfter(productId, pageable);
 	}
 	
-	// Hiển thị mỗi thể loại có bao nhiêu sản phẩm
+	// Hiển thị mỗi thể loại có bao nhiêu sản phẩm - đếm bằng BitSet trong bộ nhớ, không GROUP BY
 	public void listCategoryByProductName(Model model) {
 
-		List<Object[]> coutnProductByCategory = productRepository.listCategoryByProductName();
-		model.addAttribute("coutnProductByCategory", coutnProductByCategory);
+		showFacets(model, productFacetIndex.facets());
+	}
+
+	// số sản phẩm theo thể loại / nhãn hiệu / khoảng giá / mức giảm giá cho sidebar
+	public void showFacets(Model model, ProductFacets facets) {
+
+		model.addAttribute("facets", facets);
+		model.addAttribute("coutnProductByCategory", facets.getCategories());
+	}
+
+	// facet của tập sản phẩm đang xem: mỗi BitSet facet AND với tập đã lọc rồi mới đếm
+	public void showFacets(Model model, ProductFilter filter) {
+
+		showFacets(model, productFacetIndex.facets(productFacetIndex.filter(filter)));
 	}
 	
 	// hiển thị sản phẩm theo category
 	@GetMapping(value = "/productByCategory")
-	public String listProductById(Model model, @RequestParam("id") Integer id) {
-		List<Product> productList = productRepository.listProductByCategory(id);
-
-		model.addAttribute("productList", productList);
-		// active -font-end
-		listCategoryByProductName(model);
+	public String listProductById(Model model, @RequestParam("id") Integer id,
+			@RequestParam("page") Optional<Integer> page, @RequestParam("size") Optional<Integer> size,
+			@RequestParam("count") Optional<Boolean> count, @RequestParam("after") Optional<String> after) {
+		int pageSize = pageSize(size);
+		if (after.isPresent()) {
+			findAfter(model, id, null, after.get(), pageSize, "/productByCategory?id=" + id);
+		} else {
+			Pageable pageable = PageRequest.of(Math.max(page.orElse(1), 1) - 1, pageSize);
+			// chỉ chạy COUNT(*) khi giao diện thật sự cần tổng số trang
+			Slice<Product> productPage;
+			if (count.orElse(false)) {
+				productPage = productRepository.pageProductByCategory(id, pageable);
+				showPage(model, productPage, "/productByCategory?id=" + id + "&count=true");
+			} else {
+				productPage = productRepository.sliceProductByCategory(id, pageable);
+				showPage(model, productPage, "/productByCategory?id=" + id);
+			}
+			showNextCursor(model, productPage);
+		}
+		// active -font-end: facet đếm trong thể loại đang xem
+		showFacets(model, new ProductFilter().setCategoryIds(Collections.singletonList(id)));
 		
 		return "site/shop";
 	}
 	
 	// hiển thị sản phẩm theo brand
 	@GetMapping(value = "/productByBrand")
-	public String productBySupplier(Model model, @RequestParam("id") Integer id) {
-		List<Product> products = productRepository.listProductByBrand(id);
-		
-		model.addAttribute("productList", products);
-		// active -font-end
-		listCategoryByProductName(model);
+	public String productBySupplier(Model model, @RequestParam("id") Integer id,
+			@RequestParam("page") Optional<Integer> page, @RequestParam("size") Optional<Integer> size,
+			@RequestParam("count") Optional<Boolean> count, @RequestParam("after") Optional<String> after) {
+		int pageSize = pageSize(size);
+		if (after.isPresent()) {
+			findAfter(model, null, id, after.get(), pageSize, "/productByBrand?id=" + id);
+		} else {
+			Pageable pageable = PageRequest.of(Math.max(page.orElse(1), 1) - 1, pageSize);
+			Slice<Product> productPage;
+			if (count.orElse(false)) {
+				productPage = productRepository.pageProductByBrand(id, pageable);
+				showPage(model, productPage, "/productByBrand?id=" + id + "&count=true");
+			} else {
+				productPage = productRepository.sliceProductByBrand(id, pageable);
+				showPage(model, productPage, "/productByBrand?id=" + id);
+			}
+			showNextCursor(model, productPage);
+		}
+		// active -font-end: facet đếm trong nhãn hiệu đang xem
+		showFacets(model, new ProductFilter().setBrandIds(Collections.singletonList(id)));
 		
 		return "site/shop";
 	}
 	
-	// search product
+	// lọc nhiều thuộc tính: thể loại + nhãn hiệu + khoảng giá + giảm giá + còn hàng, chạy hoàn toàn trong bộ nhớ
+	@GetMapping(value = "/productFilter")
+	public String filter(Model model, @RequestParam(value = "category", required = false) List<Integer> categoryIds,
+			@RequestParam(value = "brand", required = false) List<Integer> brandIds,
+			@RequestParam(value = "price", required = false) List<Integer> priceBands,
+			@RequestParam(value = "discount", required = false) List<Integer> discountBands,
+			@RequestParam("minPrice") Optional<Double> minPrice, @RequestParam("maxPrice") Optional<Double> maxPrice,
+			@RequestParam("onSale") Optional<Boolean> onSale, @RequestParam("inStock") Optional<Boolean> inStock,
+			@RequestParam("page") Optional<Integer> page, @RequestParam("size") Optional<Integer> size) {
+
+		ProductFilter productFilter = new ProductFilter().setCategoryIds(categoryIds).setBrandIds(brandIds)
+				.setPriceBands(priceBands).setDiscountBands(discountBands).setMinPrice(minPrice.orElse(null))
+				.setMaxPrice(maxPrice.orElse(null)).setOnSale(onSale.orElse(false)).setInStock(inStock.orElse(false));
+		BitSet matches = productFacetIndex.filter(productFilter);
+
+		Pageable request = PageRequest.of(Math.max(page.orElse(1), 1) - 1, pageSize(size));
+		String pageUrl = ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("page")
+				.replaceQueryParam("size").build().toUriString();
+		showPage(model, productSearchIndex.page(productFacetIndex.productIdsOf(matches), request), pageUrl);
+		showFacets(model, productFacetIndex.facets(matches));
+
+		return "site/shop";
+	}
+	
+	// search product - phục vụ từ chỉ mục trong bộ nhớ, không LIKE trên bảng products
 	@GetMapping(value = "/searchProduct")
 	public String showSearch(Model model, Pageable pageable, @RequestParam("keyword") String keyword,
 			@RequestParam("size") Optional<Integer> size, @RequestParam("page") Optional<Integer> page) {
 
-		List<Product> products = productRepository.searchProduct(keyword);
-
-		model.addAttribute("productList", products);
-		// active -font-end
-		listCategoryByProductName(model);
+		Pageable request = PageRequest.of(Math.max(page.orElse(1), 1) - 1, pageSize(size));
+		if (keyword.trim().isEmpty()) {
+			showPage(model, findPaginated(request), "/searchProduct?keyword=");
+			listCategoryByProductName(model);
+		} else {
+			List<Integer> hits = productSearchIndex.search(keyword);
+			showPage(model, productSearchIndex.page(hits, request),
+					"/searchProduct?keyword=" + UriUtils.encodeQueryParam(keyword, StandardCharsets.UTF_8));
+			// facet đếm trên chính tập kết quả tìm kiếm
+			showFacets(model, productFacetIndex.facets(productFacetIndex.docsOf(hits)));
+		}
+		model.addAttribute("keyword", keyword);
 		
 		return "site/shop";
 	}
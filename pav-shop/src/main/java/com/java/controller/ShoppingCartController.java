@@ -4,14 +4,17 @@ import java.security.Principal;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
-import javax.transaction.Transactional;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.propertyeditors.CustomDateEditor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.WebDataBinder;
@@ -21,15 +24,24 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import com.java.entity.CartItem;
+import com.java.entity.CartQuote;
+import com.java.entity.CheckoutSnapshot;
 import com.java.entity.Customer;
 import com.java.entity.Order;
 import com.java.entity.OrderDetail;
 import com.java.entity.Product;
 import com.java.repository.CustomerRepository;
+import com.java.repository.OrderBatchRepository;
 import com.java.repository.OrderDetailRepository;
 import com.java.repository.OrderRepository;
 import com.java.repository.ProductRepository;
+import com.java.service.CartPricingService;
+import com.java.service.CheckoutIdempotencyStore;
+import com.java.service.CheckoutValidator;
+import com.java.service.OrderIntakeQueue;
 import com.java.service.ShoppingCartService;
+import com.java.service.StockReservationService;
+import com.java.service.TrendingProducts;
 
 @Controller
 public class ShoppingCartController extends CommonController {
@@ -46,25 +58,41 @@ public class ShoppingCartController extends CommonController {
 	@Autowired
 	OrderDetailRepository orderDetailRepository;
 
+	@Autowired
+	OrderBatchRepository orderBatchRepository;
+
+	@Autowired
+	OrderIntakeQueue orderIntakeQueue;
+
+	@Autowired
+	StockReservationService stockReservationService;
+
+	@Autowired
+	CartPricingService cartPricingService;
+
+	@Autowired
+	CheckoutIdempotencyStore checkoutIdempotencyStore;
+
+	@Autowired
+	CheckoutValidator checkoutValidator;
+
 	@Autowired
 	ShoppingCartService shoppingCartService;
 
+	@Autowired
+	TrendingProducts trendingProducts;
+
 	@Autowired
 	HttpSession session;
 
 	@GetMapping(value = "/cartItem")
 	public String shoppingCart(Model model) {
 
-		Collection<CartItem> cartItems = shoppingCartService.getCartItems();
-		model.addAttribute("cartItems", cartItems);
-		model.addAttribute("total", shoppingCartService.getAmount());
-		double totalPrice = 0;
-		for (CartItem cartItem : cartItems) {
-			double price = cartItem.getQuantity() * cartItem.getProduct().getPrice();
-			totalPrice += price - (price * cartItem.getProduct().getDiscount() / 100);
-		}
-
-		model.addAttribute("totalPrice", totalPrice);
+		// tính tiền (và cập nhật giá đã lưu trong giỏ) trước khi lấy danh sách hiển thị
+		CartQuote quote = cartPricingService.quote(shoppingCartService);
+		model.addAttribute("cartItems", shoppingCartService.getCartItems());
+		model.addAttribute("total", quote.getAmount());
+		model.addAttribute("totalPrice", quote.getTotalPrice());
 		model.addAttribute("totalCartItems", shoppingCartService.getCount());
 
 		return "site/shoppingCart";
@@ -76,17 +104,22 @@ public class ShoppingCartController extends CommonController {
 
 		Product product = productRepository.findById(productId).orElse(null);
 
-		session = request.getSession();
-		Collection<CartItem> cartItems = shoppingCartService.getCartItems();
+		// controller là singleton: session id lấy theo request hiện tại, không gán lại field session
+		String sessionId = request.getSession().getId();
 		if (product != null) {
+			// giữ hàng trước khi cho vào giỏ, hết hàng thì báo lại ở trang giỏ hàng
+			if (!stockReservationService.reserve(sessionId, productId, 1)) {
+				return "redirect:/cartItem?outOfStock=" + productId;
+			}
 			CartItem item = new CartItem();
 			BeanUtils.copyProperties(product, item);
+			item.setUnitPrice(product.getPrice());
 			item.setQuantity(1);
 			item.setProduct(product);
 			item.setProductId(productId);
 			shoppingCartService.add(item);
 		}
-		session.setAttribute("cartItems", cartItems);
+		// giỏ hàng do ShoppingCartService quản lý, không chép danh sách CartItem (kèm Product) vào session
 		model.addAttribute("totalCartItems", shoppingCartService.getCount());
 
 		return "redirect:/cartItem";
@@ -99,13 +132,14 @@ public class ShoppingCartController extends CommonController {
 		Product product = productRepository.findById(id).orElse(null);
 
 		Collection<CartItem> cartItems = shoppingCartService.getCartItems();
-		session = request.getSession();
+		String sessionId = request.getSession().getId();
 		if (product != null) {
 			CartItem item = new CartItem();
 			BeanUtils.copyProperties(product, item);
 			item.setProduct(product);
 			cartItems.remove(session);
 			shoppingCartService.remove(item);
+			stockReservationService.release(sessionId, id);
 		}
 		model.addAttribute("totalCartItems", shoppingCartService.getCount());
 
@@ -116,67 +150,171 @@ public class ShoppingCartController extends CommonController {
 	public String checkout(Model model) {
 
 		Order order = new Order();
+		// key chống gửi trùng cho lần đặt hàng này
+		order.setIdempotencyKey(UUID.randomUUID().toString());
 		model.addAttribute("order", order);
 
-		Collection<CartItem> cartItems = shoppingCartService.getCartItems();
-		model.addAttribute("cartItems", cartItems);
-		model.addAttribute("total", shoppingCartService.getAmount());
+		CartQuote quote = cartPricingService.quote(shoppingCartService);
+		model.addAttribute("cartItems", shoppingCartService.getCartItems());
+		model.addAttribute("total", quote.getAmount());
 		model.addAttribute("NoOfItems", shoppingCartService.getCount());
-		double totalPrice = 0;
-		for (CartItem cartItem : cartItems) {
-			double price = cartItem.getQuantity() * cartItem.getProduct().getPrice();
-			totalPrice += price - (price * cartItem.getProduct().getDiscount() / 100);
-		}
-
-		model.addAttribute("totalPrice", totalPrice);
+		model.addAttribute("totalPrice", quote.getTotalPrice());
 		model.addAttribute("totalCartItems", shoppingCartService.getCount());
+		// tổng tiền khách thấy trên form, lúc đặt hàng giá tăng quá con số này thì phải xác nhận lại
+		model.addAttribute("quotedTotal", quote.getTotalPrice());
 
 		return "site/checkOut";
 	}
 
-	// submit checkout
+	// submit checkout: header + toàn bộ order detail được ghi bằng batch JDBC (OrderBatchRepository),
+	// hoặc đưa vào hàng đợi OrderIntakeQueue nếu bật pavshop.order.async-intake.
+	// Form mang idempotency key: gửi lại cùng key chỉ trả về kết quả lần đầu, không ghi DB lần nữa.
 	@PostMapping(value = "/checkOut")
-	@Transactional
-	public String checkedOut(Model model, Order order, HttpServletRequest request, Principal principal) {
+	public String checkedOut(Model model, Order order, @RequestParam("quotedTotal") Optional<Double> quotedTotal,
+			HttpServletRequest request, Principal principal) {
 
-		session = request.getSession();
-		Collection<CartItem> cartItems = shoppingCartService.getCartItems();
-
-		Customer c = customerRepository.findByEmail(principal.getName()).orElse(null);
+		String key = order.getIdempotencyKey();
+		if (!CheckoutIdempotencyStore.isValidKey(key) || principal == null) {
+			key = null;
+			order.setIdempotencyKey(null);
+		}
+		// key được giữ theo khách đang đăng nhập: khách khác gửi cùng key không nhận lại đơn của khách này
+		String owner = principal != null ? principal.getName() : null;
+		if (key != null) {
+			CheckoutIdempotencyStore.Result previous;
+			try {
+				previous = checkoutIdempotencyStore.begin(owner, key);
+			} catch (InterruptedException e) {
+				// request bị huỷ khi đang chờ lần gửi đầu: giữ cờ interrupt, khách gửi lại cùng key
+				Thread.currentThread().interrupt();
+				return checkoutAgain(model, order, "Không xử lý được yêu cầu đặt hàng, vui lòng thử lại!");
+			}
+			if (previous != null) {
+				return checkoutResult(model, order, previous);
+			}
+		}
 
-		double totalPrice = 0;
+		boolean placed = false;
+		try {
+			String view;
+			try {
+				view = placeOrder(model, order, quotedTotal, request, principal);
+			} catch (DuplicateKeyException e) {
+				// cache đã quên key nhưng đơn hàng của chính khách này đã có trong DB: trả lại đơn hàng cũ
+				Customer customer = order.getCustomer();
+				Integer orderId = key == null || customer == null ? null
+						: orderRepository.findOrderIdByIdempotencyKeyAndCustomerId(key, customer.getCustomerId())
+								.orElse(null);
+				if (orderId != null) {
+					placed = true;
+					checkoutIdempotencyStore.complete(owner, key, orderId, null);
+					return checkoutResult(model, order, new CheckoutIdempotencyStore.Result(orderId, null));
+				}
+				if (order.getIdempotencyKey() == null) {
+					throw e;
+				}
+				// key trong DB thuộc đơn của khách khác: coi như key mới, ghi đơn không kèm key
+				// (gửi trùng của khách này vẫn được chặn bằng key trong bộ nhớ)
+				order.setIdempotencyKey(null);
+				view = placeOrder(model, order, quotedTotal, request, principal);
+			}
+			placed = model.containsAttribute("orderId") || model.containsAttribute("orderReference");
+			if (key != null && placed) {
+				checkoutIdempotencyStore.complete(owner, key, (Integer) model.getAttribute("orderId"),
+						(String) model.getAttribute("orderReference"));
+			}
+			return view;
+		} finally {
+			if (key != null && !placed) {
+				checkoutIdempotencyStore.abort(owner, key);
+			}
+		}
+	}
 
-		for (CartItem cartItem : cartItems) {
+	// kết quả của lần gửi đầu cho một lần gửi trùng; lần đầu chưa xong thì chưa có đơn để báo thành công
+	private String checkoutResult(Model model, Order order, CheckoutIdempotencyStore.Result result) {
+		if (result.isPending()) {
+			return checkoutAgain(model, order,
+					"Đơn hàng của bạn đang được xử lý, vui lòng đợi giây lát rồi bấm đặt hàng lại để xem kết quả!");
+		}
+		model.addAttribute("orderId", result.getOrderId());
+		model.addAttribute("orderReference", result.getOrderReference());
+		model.addAttribute("totalCartItems", shoppingCartService.getCount());
+		return "site/checkout_success";
+	}
 
-			OrderDetail orderDetail = new OrderDetail();
-			orderDetail.setQuantity(cartItem.getQuantity());
-			orderDetail.setOrder(order);
-			orderDetail.setProduct(cartItem.getProduct());
+	// hiển thị lại form checkout với đơn khách đã nhập, giữ nguyên idempotency key để gửi lại không tạo đơn mới
+	private String checkoutAgain(Model model, Order order, String message) {
+		checkout(model);
+		model.addAttribute("order", order);
+		model.addAttribute("message", message);
+		return "site/checkOut";
+	}
 
-			double price = cartItem.getQuantity() * cartItem.getProduct().getPrice();
-			totalPrice += price - (price * cartItem.getProduct().getDiscount() / 100);
+	private String placeOrder(Model model, Order order, Optional<Double> quotedTotal, HttpServletRequest request,
+			Principal principal) {
 
-			double unitPrice = cartItem.getProduct().getPrice();
+		String sessionId = request.getSession().getId();
+		Collection<CartItem> cartItems = shoppingCartService.getCartItems();
+		if (cartItems.isEmpty()) {
+			return "redirect:/cartItem";
+		}
 
-			orderDetail.setTotalPrice(price - (price * cartItem.getProduct().getDiscount() / 100));
-			orderDetail.setPrice(unitPrice);
-			orderDetail.setStatus("Đang Chờ Xử Lý");
-			orderDetailRepository.save(orderDetail);
+		// giá / giảm giá / tồn kho hiện tại của cả giỏ trong một truy vấn, đơn được ghi theo ảnh chụp này
+		CheckoutSnapshot snapshot = checkoutValidator.snapshot(cartItems);
+		if (!snapshot.getRejected().isEmpty()) {
+			checkout(model);
+			model.addAttribute("order", order);
+			model.addAttribute("message",
+					"Sản phẩm " + String.join(", ", snapshot.getRejected()) + " không còn bán hoặc không còn đủ hàng!");
+			return "site/checkOut";
+		}
+		// giá tăng so với tổng tiền khách đã thấy trên form: hiển thị lại theo giá mới để khách xác nhận
+		if (quotedTotal.isPresent() && snapshot.getTotalPrice() > quotedTotal.get() + 0.005) {
+			checkout(model);
+			model.addAttribute("order", order);
+			model.addAttribute("message", "Giá sản phẩm đã thay đổi, vui lòng kiểm tra lại tổng tiền trước khi đặt hàng!");
+			return "site/checkOut";
+		}
 
+		// giữ đủ số lượng của từng dòng (giỏ có thể đã quá hạn giữ hàng)
+		for (CheckoutSnapshot.Line line : snapshot.getLines()) {
+			if (!stockReservationService.reserveExactly(sessionId, line.getProductId(), line.getQuantity())) {
+				checkout(model);
+				model.addAttribute("order", order);
+				model.addAttribute("message", "Sản phẩm " + line.getName() + " không còn đủ hàng!");
+				return "site/checkOut";
+			}
 		}
 
-		order.setTotalPrice(totalPrice);
+		Customer c = customerRepository.findByEmail(principal.getName()).orElse(null);
+		List<OrderDetail> orderDetails = checkoutValidator.orderDetails(snapshot, order, "Đang Chờ Xử Lý");
+
+		order.setTotalPrice(snapshot.getTotalPrice());
 		Date date = new Date();
 		order.setOrderDate(date);
-		order.setAmount(shoppingCartService.getAmount());
+		order.setAmount(snapshot.getAmount());
 		order.setCustomer(c);
 
-		orderRepository.save(order);
-		order.getOrderId();
+		if (orderIntakeQueue.isEnabled()) {
+			String reference = orderIntakeQueue.submit(order, orderDetails);
+			if (reference == null) {
+				// hàng đợi đầy: giữ nguyên giỏ hàng và thông tin khách đã nhập, báo thử lại
+				checkout(model);
+				model.addAttribute("order", order);
+				model.addAttribute("message", "Hệ thống đang quá tải, vui lòng đặt hàng lại sau ít phút!");
+				return "site/checkOut";
+			}
+			model.addAttribute("orderReference", reference);
+		} else {
+			orderBatchRepository.saveOrder(order, orderDetails);
+			trendingProducts.record(orderDetails);
+			model.addAttribute("orderId", order.getOrderId());
+		}
+		stockReservationService.commit(sessionId);
 
 		shoppingCartService.clear();
-		session.removeAttribute("cartItems");
-		model.addAttribute("orderId", order.getOrderId());
+		request.getSession().removeAttribute("cartItems");
 		model.addAttribute("totalCartItems", shoppingCartService.getCount());
 
 		return "site/checkout_success";
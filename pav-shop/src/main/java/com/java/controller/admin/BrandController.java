@@ -17,6 +17,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import com.java.controller.CommonController;
 import com.java.entity.Brand;
 import com.java.repository.BrandRepository;
+import com.java.service.CatalogMenuCache;
+import com.java.service.ProductFacetIndex;
 
 @Controller
 public class BrandController extends CommonController{
@@ -24,6 +26,12 @@ public class BrandController extends CommonController{
 	@Autowired
 	BrandRepository brandRepository;
 
+	@Autowired
+	ProductFacetIndex productFacetIndex;
+
+	@Autowired
+	CatalogMenuCache catalogMenuCache;
+
 	// show list brands - table list
 	@ModelAttribute("brands")
 	public List<Brand> showBrand(Model model) {
@@ -54,6 +62,8 @@ public class BrandController extends CommonController{
 		}
 
 		brandRepository.save(brand);
+		catalogMenuCache.invalidateBrands();
+		productFacetIndex.refreshNames();
 		model.addAttribute("message", "successful!");
 
 		return "redirect:/admin/brands";
@@ -73,6 +83,8 @@ public class BrandController extends CommonController{
 	@GetMapping("/deleteBrand/{id}")
 	public String delBrand(@PathVariable("id") Integer id, Model model) {
 		brandRepository.deleteById(id);
+		catalogMenuCache.invalidateBrands();
+		productFacetIndex.refreshNames();
 		model.addAttribute("message", "Delete successful!");
 		
 		return "redirect:/admin/brands";
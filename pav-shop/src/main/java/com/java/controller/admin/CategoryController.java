@@ -17,16 +17,24 @@ import org.springframework.web.bind.annotation.PostMapping;
 import com.java.controller.CommonController;
 import com.java.entity.Category;
 import com.java.repository.CategoryRepository;
+import com.java.service.CatalogMenuCache;
+import com.java.service.ProductFacetIndex;
 
 @Controller
 public class CategoryController extends CommonController{
 	
 	@Autowired
 	CategoryRepository categoryRepository;
+
+	@Autowired
+	ProductFacetIndex productFacetIndex;
+
+	@Autowired
+	CatalogMenuCache catalogMenuCache;
 	
 	// show list category - table list
 		@ModelAttribute("categories")
-		public List<Category> showCategory(Model model) {
+		public List<Category> showCategories(Model model) {
 			List<Category> categories = categoryRepository.findAll();
 			model.addAttribute("categories", categories);
 
@@ -63,6 +71,8 @@ public class CategoryController extends CommonController{
 			}
 
 			categoryRepository.save(category);
+			catalogMenuCache.invalidateCategories();
+			productFacetIndex.refreshNames();
 			model.addAttribute("message", "successful!");
 
 			return "redirect:/admin/categories";
@@ -86,6 +96,8 @@ public class CategoryController extends CommonController{
 		@GetMapping("/delete/{id}")
 		public String delCategory(@PathVariable("id") Integer id, Model model) {
 			categoryRepository.deleteById(id);
+			catalogMenuCache.invalidateCategories();
+			productFacetIndex.refreshNames();
 			model.addAttribute("message", "Delete successful!");
 			
 			return "redirect:/admin/categories";
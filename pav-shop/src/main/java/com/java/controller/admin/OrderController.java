@@ -61,7 +61,7 @@ public class OrderController extends CommonController{
 	@RequestMapping(value = "/editorder", method = RequestMethod.POST)
 	public String editordertr(@ModelAttribute("orderDetail") OrderDetail orderDetail, Model model,
 			RedirectAttributes rs) {
-		OrderDetail orderDetail2 = orderDetailRepository.save(orderDetail);
+		OrderDetail orderDetail2 = orderDetailService.save(orderDetail);
 		if (null != orderDetail2) {
 			model.addAttribute("message", "Đã xác nhận !");
 			model.addAttribute("orderDetail", orderDetailRepository.findById(orderDetail2.getOrderDetailId()));
@@ -76,7 +76,7 @@ public class OrderController extends CommonController{
 	// delete category
 	@GetMapping("/deleteOrder/{id}")
 	public String delProduct(@PathVariable("id") Integer id, Model model) {
-		orderDetailRepository.deleteById(id);
+		orderDetailService.delete(id);
 		model.addAttribute("message", "Delete successful!");
 		
 		return "redirect:/admin/orders";
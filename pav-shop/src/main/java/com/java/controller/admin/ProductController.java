@@ -24,12 +24,17 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.java.controller.CommonController;
-import com.java.entity.Brand;
-import com.java.entity.Category;
 import com.java.entity.Product;
 import com.java.repository.BrandRepository;
 import com.java.repository.CategoryRepository;
 import com.java.repository.ProductRepository;
+import com.java.service.CartPricingService;
+import com.java.service.HomePageSnapshot;
+import com.java.service.OrderLineColumnStore;
+import com.java.service.ProductFacetIndex;
+import com.java.service.ProductSearchIndex;
+import com.java.service.ProductSuggester;
+import com.java.service.StockReservationService;
 
 @Controller
 public class ProductController extends CommonController{
@@ -46,6 +51,27 @@ public class ProductController extends CommonController{
 	@Autowired
 	BrandRepository brandRepository;
 
+	@Autowired
+	ProductSearchIndex productSearchIndex;
+
+	@Autowired
+	ProductSuggester productSuggester;
+
+	@Autowired
+	ProductFacetIndex productFacetIndex;
+
+	@Autowired
+	HomePageSnapshot homePageSnapshot;
+
+	@Autowired
+	StockReservationService stockReservationService;
+
+	@Autowired
+	CartPricingService cartPricingService;
+
+	@Autowired
+	OrderLineColumnStore orderLineColumnStore;
+
 	public ProductController(CategoryRepository categoryRepository, BrandRepository brandRepository,
 			ProductRepository productRepository) {
 		this.productRepository = productRepository;
@@ -88,6 +114,15 @@ public class ProductController extends CommonController{
 		product.setImage(file.getOriginalFilename());
 		Product p = productRepository.save(product);
 		if (null != p) {
+			productSearchIndex.index(p);
+			productSuggester.index(p);
+			productFacetIndex.index(p);
+			homePageSnapshot.requestRefresh();
+			stockReservationService.reload(p);
+			cartPricingService.invalidate(p.getProductId());
+			orderLineColumnStore.reassign(p.getProductId(),
+					p.getCategory() != null ? p.getCategory().getCategoryId() : null,
+					p.getBrand() != null ? p.getBrand().getBrandId() : null);
 			model.addAttribute("message", "Update success");
 			model.addAttribute("product", product);
 		} else {
@@ -97,23 +132,7 @@ public class ProductController extends CommonController{
 		return "redirect:/admin/products";
 	}
 
-	// show select option ở add product
-	@ModelAttribute("categoryList")
-	public List<Category> showCategory(Model model) {
-		List<Category> categoryList = categoryRepository.findAll();
-		model.addAttribute("categoryList", categoryList);
-
-		return categoryList;
-	}
-
-	// show select option ở add product
-	@ModelAttribute("brandList")
-	public List<Brand> brandList(Model model) {
-		List<Brand> brandList = brandRepository.findAll();
-		model.addAttribute("brandList", brandList);
-
-		return brandList;
-	}
+	// select option ở add product: dùng categoryList / brandList đã cache của CommonController
 	
 	// get Edit brand
 	@GetMapping(value = "/editProduct/{id}")
@@ -129,6 +148,12 @@ public class ProductController extends CommonController{
 	@GetMapping("/deleteProduct/{id}")
 	public String delProduct(@PathVariable("id") Integer id, Model model) {
 		productRepository.deleteById(id);
+		productSearchIndex.remove(id);
+		productSuggester.remove(id);
+		productFacetIndex.remove(id);
+		homePageSnapshot.requestRefresh();
+		stockReservationService.remove(id);
+		cartPricingService.invalidate(id);
 		model.addAttribute("message", "Delete successful!");
 
 		return "redirect:/admin/products";
@@ -2,19 +2,31 @@ package com.java.controller.admin;
 
 import java.security.Principal;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import com.java.controller.CommonController;
 import com.java.entity.Customer;
 import com.java.entity.OrderDetail;
 import com.java.repository.CustomerRepository;
 import com.java.repository.OrderDetailRepository;
+import com.java.repository.SalesRollupRepository;
+import com.java.service.OrderLineColumnStore;
+import com.java.service.SalesRollupService;
 
 @Controller
 public class ReportController extends CommonController{
@@ -25,15 +37,35 @@ public class ReportController extends CommonController{
 	@Autowired
 	OrderDetailRepository orderDetailRepository;
 
+	@Autowired
+	OrderLineColumnStore orderLineColumnStore;
+
+	// các báo cáo đọc bảng tổng hợp dựng sẵn thay vì gộp lại toàn bộ orderdetails mỗi lần xem;
+	// khi bảng chưa dựng xong thì gộp trực tiếp orders / orderdetails trong khoảng ngày
+	@Autowired
+	SalesRollupRepository salesRollupRepository;
+
+	@Autowired
+	SalesRollupService salesRollupService;
+
+	private static final LocalDate MIN_DAY = LocalDate.of(1000, 1, 1);
+	private static final LocalDate MAX_DAY = LocalDate.of(9999, 12, 31);
+
 	// Thống kê theo sản phẩm được bán ra
 	@GetMapping(value = "/admin/reports")
-	public String report(Model model, Principal principal) throws SQLException {
+	public String report(Model model, Principal principal,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) throws SQLException {
 //		Customer customer = customerRepository.findByEmail(principal.getName()).get();
 //		model.addAttribute("customer", customer);
 
 		OrderDetail orderDetail = new OrderDetail();
 		model.addAttribute("orderDetail", orderDetail);
-		List<Object[]> listReportCommon = orderDetailRepository.repo();
+		LocalDate[] range = range(model, "/admin/reports", from, to, days);
+		List<Object[]> listReportCommon = salesRollupService.isReady()
+				? salesRollupRepository.reportProduct(range[0], range[1])
+				: orderDetailRepository.repo(date(range[0], MIN_DAY), date(range[1], MAX_DAY));
 		model.addAttribute("listReportCommon", listReportCommon);
 
 		return "admin/statistical";
@@ -41,13 +73,19 @@ public class ReportController extends CommonController{
 
 	// Thống kê theo thể loại được bán ra
 	@RequestMapping(value = "/admin/reportCategory")
-	public String reportcategory(Model model, Principal principal) throws SQLException {
+	public String reportcategory(Model model, Principal principal,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) throws SQLException {
 //		Customer customer = customerRepository.findByEmail(principal.getName()).get();
 //		model.addAttribute("customer", customer);
 
 		OrderDetail orderDetail = new OrderDetail();
 		model.addAttribute("orderDetail", orderDetail);
-		List<Object[]> listReportCommon = orderDetailRepository.repoWhereCategory();
+		LocalDate[] range = range(model, "/admin/reportCategory", from, to, days);
+		List<Object[]> listReportCommon = salesRollupService.isReady()
+				? salesRollupRepository.reportCategory(range[0], range[1])
+				: orderDetailRepository.repoWhereCategory(date(range[0], MIN_DAY), date(range[1], MAX_DAY));
 		model.addAttribute("listReportCommon", listReportCommon);
 
 		return "admin/statistical";
@@ -55,13 +93,19 @@ public class ReportController extends CommonController{
 
 	// Thống kê theo sản phẩm từ nhà cung cấp được bán ra
 	@RequestMapping(value = "/admin/reportBrands")
-	public String reportbrands(Model model, Principal principal) throws SQLException {
+	public String reportbrands(Model model, Principal principal,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) throws SQLException {
 //		Customer customer = customerRepository.findByEmail(principal.getName()).get();
 //		model.addAttribute("customer", customer);
 
 		OrderDetail orderDetail = new OrderDetail();
 		model.addAttribute("orderDetail", orderDetail);
-		List<Object[]> listReportCommon = orderDetailRepository.repoWhereBrands();
+		LocalDate[] range = range(model, "/admin/reportBrands", from, to, days);
+		List<Object[]> listReportCommon = salesRollupService.isReady()
+				? salesRollupRepository.reportBrand(range[0], range[1])
+				: orderDetailRepository.repoWhereBrands(date(range[0], MIN_DAY), date(range[1], MAX_DAY));
 		model.addAttribute("listReportCommon", listReportCommon);
 
 		return "admin/statistical";
@@ -69,13 +113,19 @@ public class ReportController extends CommonController{
 
 	// Thống kê sản phẩm bán ra theo năm
 	@RequestMapping(value = "/admin/reportYear")
-	public String reportyear(Model model, Principal principal) throws SQLException {
+	public String reportyear(Model model, Principal principal,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) throws SQLException {
 //		Customer customer = customerRepository.findByEmail(principal.getName()).get();
 //		model.addAttribute("customer", customer);
 
 		OrderDetail orderDetail = new OrderDetail();
 		model.addAttribute("orderDetail", orderDetail);
-		List<Object[]> listReportCommon = orderDetailRepository.repoWhereYear();
+		LocalDate[] range = range(model, "/admin/reportYear", from, to, days);
+		List<Object[]> listReportCommon = salesRollupService.isReady()
+				? salesRollupRepository.reportYear(range[0], range[1])
+				: orderDetailRepository.repoWhereYear(date(range[0], MIN_DAY), date(range[1], MAX_DAY));
 		model.addAttribute("listReportCommon", listReportCommon);
 
 		return "admin/statistical";
@@ -83,13 +133,19 @@ public class ReportController extends CommonController{
 
 	// Thống kê sản phẩm bán ra theo tháng
 	@RequestMapping(value = "/admin/reportMonth")
-	public String reportmonth(Model model, Principal principal) throws SQLException {
+	public String reportmonth(Model model, Principal principal,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) throws SQLException {
 //		Customer customer = customerRepository.findByEmail(principal.getName()).get();
 //		model.addAttribute("customer", customer);
 
 		OrderDetail orderDetail = new OrderDetail();
 		model.addAttribute("orderDetail", orderDetail);
-		List<Object[]> listReportCommon = orderDetailRepository.repoWhereMonth();
+		LocalDate[] range = range(model, "/admin/reportMonth", from, to, days);
+		List<Object[]> listReportCommon = salesRollupService.isReady()
+				? salesRollupRepository.reportMonth(range[0], range[1])
+				: orderDetailRepository.repoWhereMonth(date(range[0], MIN_DAY), date(range[1], MAX_DAY));
 		model.addAttribute("listReportCommon", listReportCommon);
 
 		return "admin/statistical";
@@ -97,13 +153,19 @@ public class ReportController extends CommonController{
 
 	// Thống kê sản phẩm bán ra theo quý
 	@RequestMapping(value = "/admin/reportQuarter")
-	public String reportquarter(Model model, Principal principal) throws SQLException {
+	public String reportquarter(Model model, Principal principal,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) throws SQLException {
 //		Customer customer = customerRepository.findByEmail(principal.getName()).get();
 //		model.addAttribute("customer", customer);
 
 		OrderDetail orderDetail = new OrderDetail();
 		model.addAttribute("orderDetail", orderDetail);
-		List<Object[]> listReportCommon = orderDetailRepository.repoWhereQUARTER();
+		LocalDate[] range = range(model, "/admin/reportQuarter", from, to, days);
+		List<Object[]> listReportCommon = salesRollupService.isReady()
+				? salesRollupRepository.reportQuarter(range[0], range[1])
+				: orderDetailRepository.repoWhereQUARTER(date(range[0], MIN_DAY), date(range[1], MAX_DAY));
 		model.addAttribute("listReportCommon", listReportCommon);
 
 		return "admin/statistical";
@@ -111,15 +173,106 @@ public class ReportController extends CommonController{
 
 	// Thống kê theo người dùng
 	@RequestMapping(value = "/admin/reportOrderCustomer")
-	public String reportordercustomer(Model model, Principal principal) throws SQLException {
+	public String reportordercustomer(Model model, Principal principal,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) throws SQLException {
 //		Customer customer = customerRepository.findByEmail(principal.getName()).get();
 //		model.addAttribute("customer", customer);
 
 		OrderDetail orderDetail = new OrderDetail();
 		model.addAttribute("orderDetail", orderDetail);
-		List<Object[]> listReportCommon = orderDetailRepository.reportCustommer();
+		LocalDate[] range = range(model, "/admin/reportOrderCustomer", from, to, days);
+		List<Object[]> listReportCommon = salesRollupService.isReady()
+				? salesRollupRepository.reportCustomer(range[0], range[1])
+				: orderDetailRepository.reportCustommer(date(range[0], MIN_DAY), date(range[1], MAX_DAY));
 		model.addAttribute("listReportCommon", listReportCommon);
 
 		return "admin/statistical";
 	}
+
+	// Thống kê tuỳ chọn: gộp theo chiều bất kỳ (sản phẩm / thể loại / nhãn hiệu / khách hàng)
+	// và mốc thời gian bất kỳ (ngày / tháng / quý / năm) trên kho cột trong bộ nhớ, không truy vấn MySQL
+	@GetMapping(value = "/admin/reportCustom")
+	public String reportcustom(Model model, @RequestParam("dimension") Optional<String> dimension,
+			@RequestParam("bucket") Optional<String> bucket, @RequestParam("measure") Optional<String> measure,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) {
+
+		List<String> by = new ArrayList<String>(2);
+		String d = dimension.orElse("product");
+		if (OrderLineColumnStore.FIELDS.contains(d)) {
+			by.add(d);
+		}
+		bucket.filter(OrderLineColumnStore.FIELDS::contains).ifPresent(by::add);
+		return adhoc(model, by, measure, range(model, "/admin/reportAdhoc", from, to, days));
+	}
+
+	// Thống kê đa chiều: tối đa hai trường bất kỳ, vd /admin/reportAdhoc?by=brand&by=quarter
+	// hoặc ?by=category&by=customer, gộp song song trên ForkJoinPool
+	@GetMapping(value = "/admin/reportAdhoc")
+	public String reportadhoc(Model model, @RequestParam("by") Optional<List<String>> by,
+			@RequestParam("measure") Optional<String> measure,
+			@RequestParam("from") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> from,
+			@RequestParam("to") @DateTimeFormat(iso = ISO.DATE) Optional<LocalDate> to,
+			@RequestParam("days") Optional<Integer> days) {
+
+		List<String> fields = new ArrayList<String>(2);
+		for (String field : by.orElse(Collections.<String>emptyList())) {
+			if (OrderLineColumnStore.FIELDS.contains(field) && !fields.contains(field) && fields.size() < 2) {
+				fields.add(field);
+			}
+		}
+		return adhoc(model, fields, measure, range(model, "/admin/reportAdhoc", from, to, days));
+	}
+
+	private String adhoc(Model model, List<String> fields, Optional<String> measure, LocalDate[] range) {
+		String m = measure.filter(OrderLineColumnStore.MEASURES::contains).orElse("totalPrice");
+
+		OrderDetail orderDetail = new OrderDetail();
+		model.addAttribute("orderDetail", orderDetail);
+		model.addAttribute("listReportCommon", orderLineColumnStore.aggregate(fields, m, range[0], range[1]));
+		model.addAttribute("fields", OrderLineColumnStore.FIELDS);
+		model.addAttribute("measures", OrderLineColumnStore.MEASURES);
+		model.addAttribute("by1", fields.size() > 0 ? fields.get(0) : "");
+		model.addAttribute("by2", fields.size() > 1 ? fields.get(1) : "");
+		model.addAttribute("measure", m);
+		if (!orderLineColumnStore.isLoaded()) {
+			model.addAttribute("message", "Dữ liệu thống kê đang được nạp, kết quả có thể chưa đầy đủ!");
+		}
+
+		return "admin/statistical";
+	}
+
+	// khoảng ngày của báo cáo [from, to + 1 ngày), null = không giới hạn phía đó;
+	// days = N: N ngày gần nhất tính cả hôm nay (bỏ qua from / to).
+	// Hai đầu được kẹp trong [MIN_DAY, MAX_DAY]: bảng rollup so sánh ngày dạng chuỗi nên năm ngoài 4 chữ số
+	// (+10000-01-01) làm khoảng rỗng, to = MAX_DAY thì coi như không giới hạn phía sau
+	private LocalDate[] range(Model model, String reportPath, Optional<LocalDate> from, Optional<LocalDate> to,
+			Optional<Integer> days) {
+		LocalDate start = clamp(from.orElse(null));
+		LocalDate end = clamp(to.orElse(null));
+		if (days.isPresent() && days.get() > 0) {
+			end = LocalDate.now();
+			long n = Math.min(days.get(), ChronoUnit.DAYS.between(MIN_DAY, end) + 1);
+			start = end.minusDays(n - 1);
+		}
+		model.addAttribute("reportPath", reportPath);
+		model.addAttribute("from", start);
+		model.addAttribute("to", end);
+		return new LocalDate[] { start, end != null && end.isBefore(MAX_DAY) ? end.plusDays(1) : null };
+	}
+
+	private static LocalDate clamp(LocalDate day) {
+		if (day == null) {
+			return null;
+		}
+		return day.isBefore(MIN_DAY) ? MIN_DAY : day.isAfter(MAX_DAY) ? MAX_DAY : day;
+	}
+
+	// truy vấn gộp trực tiếp luôn cần đủ hai đầu khoảng
+	private static Date date(LocalDate day, LocalDate otherwise) {
+		return java.sql.Date.valueOf(day != null ? day : otherwise);
+	}
 }
@@ -13,7 +13,9 @@ import javax.persistence.Table;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @SuppressWarnings("serial")
 @Data
@@ -30,7 +32,10 @@ public class Brand implements Serializable{
 	private String email;
 	private String phone;
 	
-	@OneToMany(mappedBy="brand", fetch=FetchType.EAGER)
+	// LAZY: chỉ tải khi thật sự cần, menu / select box dùng BrandMenuItem
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	@OneToMany(mappedBy = "brand", fetch = FetchType.LAZY)
 	private Collection<Product> products;
 
 	public Brand(Integer brandId, String brandName, String email, String phone, Collection<Product> products) {
@@ -0,0 +1,40 @@
+package com.java.entity;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Brand rút gọn cho menu / select box, không kèm danh sách products
+@SuppressWarnings("serial")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BrandMenuItem implements Serializable {
+
+	private Integer brandId;
+	private String brandName;
+	public BrandMenuItem(Integer brandId, String brandName) {
+		super();
+		this.brandId = brandId;
+		this.brandName = brandName;
+	}
+	public Integer getBrandId() {
+		return brandId;
+	}
+	public void setBrandId(Integer brandId) {
+		this.brandId = brandId;
+	}
+	public String getBrandName() {
+		return brandName;
+	}
+	public void setBrandName(String brandName) {
+		this.brandName = brandName;
+	}
+	public BrandMenuItem() {
+		super();
+	}
+	
+	
+}
@@ -0,0 +1,57 @@
+package com.java.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Tổng tiền giỏ hàng theo giá hiện tại, tính một lần mỗi request (CartPricingService)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartQuote {
+
+	// số dòng trong giỏ
+	private int count;
+	// tổng số lượng sản phẩm
+	private int quantity;
+	// tổng tiền chưa giảm giá
+	private double amount;
+	// tổng tiền sau giảm giá
+	private double totalPrice;
+	public CartQuote(int count, int quantity, double amount, double totalPrice) {
+		super();
+		this.count = count;
+		this.quantity = quantity;
+		this.amount = amount;
+		this.totalPrice = totalPrice;
+	}
+	public int getCount() {
+		return count;
+	}
+	public void setCount(int count) {
+		this.count = count;
+	}
+	public int getQuantity() {
+		return quantity;
+	}
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+	public double getAmount() {
+		return amount;
+	}
+	public void setAmount(double amount) {
+		this.amount = amount;
+	}
+	public double getTotalPrice() {
+		return totalPrice;
+	}
+	public void setTotalPrice(double totalPrice) {
+		this.totalPrice = totalPrice;
+	}
+	public CartQuote() {
+		super();
+	}
+
+
+}
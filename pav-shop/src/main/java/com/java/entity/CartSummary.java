@@ -0,0 +1,48 @@
+package com.java.entity;
+
+import java.io.Serializable;
+
+// Tổng hợp giỏ hàng (bất biến), được giỏ cập nhật dần mỗi lần add / remove / clear nên đọc ra là O(1)
+@SuppressWarnings("serial")
+public final class CartSummary implements Serializable {
+
+	public static final CartSummary EMPTY = new CartSummary(0, 0, 0, 0);
+
+	// số dòng trong giỏ
+	private final int count;
+	// tổng số lượng sản phẩm
+	private final int quantity;
+	// tổng tiền chưa giảm giá
+	private final double amount;
+	// tổng tiền sau giảm giá
+	private final double totalPrice;
+
+	public CartSummary(int count, int quantity, double amount, double totalPrice) {
+		this.count = count;
+		this.quantity = quantity;
+		this.amount = amount;
+		this.totalPrice = totalPrice;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public double getAmount() {
+		return amount;
+	}
+
+	public double getTotalPrice() {
+		return totalPrice;
+	}
+
+	@Override
+	public String toString() {
+		return "CartSummary [count=" + count + ", quantity=" + quantity + ", amount=" + amount + ", totalPrice="
+				+ totalPrice + "]";
+	}
+}
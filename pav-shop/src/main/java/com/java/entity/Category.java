@@ -13,7 +13,9 @@ import javax.persistence.Table;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @SuppressWarnings("serial")
 @Data
@@ -28,7 +30,10 @@ public class Category implements Serializable {
 	private Integer categoryId;
 	private String categoryName;
 	
-	@OneToMany(mappedBy = "category", fetch = FetchType.EAGER)
+	// LAZY: chỉ tải khi thật sự cần, menu / select box dùng CategoryMenuItem
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	@OneToMany(mappedBy = "category", fetch = FetchType.LAZY)
 	private Collection<Product> products;
 
 	public Category(Integer categoryId, String categoryName, Collection<Product> products) {
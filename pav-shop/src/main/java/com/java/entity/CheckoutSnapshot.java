@@ -0,0 +1,101 @@
+package com.java.entity;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+// Ảnh chụp giỏ hàng lúc đặt hàng (bất biến): giá / giảm giá đọc một lần từ DB cho cả giỏ,
+// đơn hàng được ghi theo đúng các dòng này chứ không theo Product nằm trong giỏ.
+@SuppressWarnings("serial")
+public final class CheckoutSnapshot implements Serializable {
+
+	private final List<Line> lines;
+	// tên các dòng có sản phẩm đã bị xoá / không đủ hàng
+	private final List<String> rejected;
+	// có dòng mà giá hiện tại khác giá lúc thêm vào giỏ
+	private final boolean repriced;
+	// tổng tiền chưa giảm giá
+	private final double amount;
+	// tổng tiền sau giảm giá
+	private final double totalPrice;
+
+	public CheckoutSnapshot(List<Line> lines, List<String> rejected, boolean repriced) {
+		this.lines = Collections.unmodifiableList(lines);
+		this.rejected = Collections.unmodifiableList(rejected);
+		this.repriced = repriced;
+		double amount = 0;
+		double totalPrice = 0;
+		for (Line line : lines) {
+			amount += line.getQuantity() * line.getPrice();
+			totalPrice += line.getTotalPrice();
+		}
+		this.amount = amount;
+		this.totalPrice = totalPrice;
+	}
+
+	public List<Line> getLines() {
+		return lines;
+	}
+
+	public List<String> getRejected() {
+		return rejected;
+	}
+
+	public boolean isValid() {
+		return rejected.isEmpty() && !lines.isEmpty();
+	}
+
+	public boolean isRepriced() {
+		return repriced;
+	}
+
+	public double getAmount() {
+		return amount;
+	}
+
+	public double getTotalPrice() {
+		return totalPrice;
+	}
+
+	public static final class Line implements Serializable {
+
+		private final int productId;
+		private final String name;
+		private final int quantity;
+		private final double price;
+		private final double discount;
+
+		public Line(int productId, String name, int quantity, double price, double discount) {
+			this.productId = productId;
+			this.name = name;
+			this.quantity = quantity;
+			this.price = price;
+			this.discount = discount;
+		}
+
+		public int getProductId() {
+			return productId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public double getDiscount() {
+			return discount;
+		}
+
+		public double getTotalPrice() {
+			double line = quantity * price;
+			return line - (line * discount / 100);
+		}
+	}
+}
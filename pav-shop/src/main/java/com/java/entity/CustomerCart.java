@@ -0,0 +1,72 @@
+package com.java.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Giỏ hàng lưu lâu dài của khách đã đăng nhập: một dòng cho mỗi khách,
+// nội dung là CompactCart đã mã hoá (data), đọc / ghi bằng CustomerCartStore
+@SuppressWarnings("serial")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "customer_carts")
+public class CustomerCart implements Serializable {
+
+	@Id
+	private String customerId;
+
+	@Lob
+	@Column(columnDefinition = "BLOB")
+	private byte[] data;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date updatedAt;
+
+	public CustomerCart(String customerId, byte[] data, Date updatedAt) {
+		super();
+		this.customerId = customerId;
+		this.data = data;
+		this.updatedAt = updatedAt;
+	}
+
+	public String getCustomerId() {
+		return customerId;
+	}
+
+	public void setCustomerId(String customerId) {
+		this.customerId = customerId;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+
+	public void setData(byte[] data) {
+		this.data = data;
+	}
+
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
+	public CustomerCart() {
+		super();
+	}
+}
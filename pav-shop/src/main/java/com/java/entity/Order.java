@@ -9,6 +9,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -27,7 +28,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "orders")
+// idx_orders_orderDate: các báo cáo theo khoảng ngày chỉ quét đoạn index của khoảng đó
+@Table(name = "orders", indexes = @Index(name = "idx_orders_orderDate", columnList = "orderDate, orderId"))
 public class Order implements Serializable {
 
 	@Id
@@ -54,6 +56,10 @@ public class Order implements Serializable {
 	@OneToMany(mappedBy = "order")
 	private Collection<OrderDetail> orderDetails;
 
+	// key chống gửi trùng của form checkout, UNIQUE để DB chặn khi cache trong bộ nhớ đã quên key
+	@Column(unique = true, length = 64)
+	private String idempotencyKey;
+
 	public Order(Integer orderId, String phone, Date orderDate, Date requireDate, String receiver, String address,
 			String description, Double amount, Double totalPrice, Customer customer,
 			Collection<OrderDetail> orderDetails) {
@@ -159,6 +165,14 @@ public class Order implements Serializable {
 		this.orderDetails = orderDetails;
 	}
 
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
+
 	public Order() {
 		super();
 	}
@@ -0,0 +1,68 @@
+package com.java.entity;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Trạng thái một đơn hàng đã nhận vào hàng đợi, trả về cho /orderStatus
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderIntakeStatus {
+
+	public static final String QUEUED = "QUEUED";
+	public static final String SAVED = "SAVED";
+	public static final String FAILED = "FAILED";
+
+	private String reference;
+	private String status;
+	// có giá trị khi status = SAVED
+	private Integer orderId;
+	private String message;
+	private Date updatedAt;
+	public OrderIntakeStatus(String reference, String status, Integer orderId, String message, Date updatedAt) {
+		super();
+		this.reference = reference;
+		this.status = status;
+		this.orderId = orderId;
+		this.message = message;
+		this.updatedAt = updatedAt;
+	}
+	public String getReference() {
+		return reference;
+	}
+	public void setReference(String reference) {
+		this.reference = reference;
+	}
+	public String getStatus() {
+		return status;
+	}
+	public void setStatus(String status) {
+		this.status = status;
+	}
+	public Integer getOrderId() {
+		return orderId;
+	}
+	public void setOrderId(Integer orderId) {
+		this.orderId = orderId;
+	}
+	public String getMessage() {
+		return message;
+	}
+	public void setMessage(String message) {
+		this.message = message;
+	}
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+	public OrderIntakeStatus() {
+		super();
+	}
+
+
+}
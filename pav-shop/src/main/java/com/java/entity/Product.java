@@ -8,6 +8,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -26,7 +27,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+		@Index(name = "idx_products_entered_date", columnList = "enteredDate, productId"),
+		@Index(name = "idx_products_category_entered_date", columnList = "categoryId, enteredDate, productId"),
+		@Index(name = "idx_products_brand_entered_date", columnList = "brandId, enteredDate, productId") })
 public class Product implements Serializable {
 
 	@Id
@@ -0,0 +1,64 @@
+package com.java.entity;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Số sản phẩm theo từng bộ lọc của sidebar, mỗi dòng là {khoá, nhãn, số lượng}
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFacets {
+
+	private int total;
+	private List<Object[]> categories;
+	private List<Object[]> brands;
+	private List<Object[]> prices;
+	private List<Object[]> discounts;
+	public ProductFacets(int total, List<Object[]> categories, List<Object[]> brands, List<Object[]> prices,
+			List<Object[]> discounts) {
+		super();
+		this.total = total;
+		this.categories = categories;
+		this.brands = brands;
+		this.prices = prices;
+		this.discounts = discounts;
+	}
+	public int getTotal() {
+		return total;
+	}
+	public void setTotal(int total) {
+		this.total = total;
+	}
+	public List<Object[]> getCategories() {
+		return categories;
+	}
+	public void setCategories(List<Object[]> categories) {
+		this.categories = categories;
+	}
+	public List<Object[]> getBrands() {
+		return brands;
+	}
+	public void setBrands(List<Object[]> brands) {
+		this.brands = brands;
+	}
+	public List<Object[]> getPrices() {
+		return prices;
+	}
+	public void setPrices(List<Object[]> prices) {
+		this.prices = prices;
+	}
+	public List<Object[]> getDiscounts() {
+		return discounts;
+	}
+	public void setDiscounts(List<Object[]> discounts) {
+		this.discounts = discounts;
+	}
+	public ProductFacets() {
+		super();
+	}
+	
+	
+}
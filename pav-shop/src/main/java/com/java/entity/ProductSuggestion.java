@@ -0,0 +1,36 @@
+package com.java.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSuggestion {
+
+	private int productId;
+	private String name;
+	public ProductSuggestion(int productId, String name) {
+		super();
+		this.productId = productId;
+		this.name = name;
+	}
+	public int getProductId() {
+		return productId;
+	}
+	public void setProductId(int productId) {
+		this.productId = productId;
+	}
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public ProductSuggestion() {
+		super();
+	}
+	
+	
+}
@@ -0,0 +1,142 @@
+package com.java.entity;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Bảng tổng hợp doanh số dựng sẵn cho trang thống kê, cập nhật dần mỗi khi ghi / sửa / xoá order detail
+// (SalesRollupRepository). Một dòng = tổng của các order detail thuộc một khoá trong một chiều:
+// - dimension: product / category / brand / customer / month, dimKey: id tương ứng hoặc yyyy-MM
+// - period: ALL (toàn thời gian) hoặc yyyy-MM-dd (theo ngày đặt hàng), báo cáo theo khoảng ngày đọc
+//   các dòng ngày qua index (dimension, period)
+@SuppressWarnings("serial")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(SalesRollupId.class)
+@Table(name = "sales_rollups", indexes = @Index(name = "idx_sales_rollups_period", columnList = "dimension, period"))
+public class SalesRollup implements Serializable {
+
+	@Id
+	@Column(length = 16)
+	private String dimension;
+
+	@Id
+	@Column(length = 64)
+	private String dimKey;
+
+	@Id
+	@Column(length = 10)
+	private String period;
+
+	// số order detail
+	private long lineCount;
+	// SUM(quantity)
+	private long quantity;
+	// SUM(quantity * total_price), cột "sum" của các báo cáo cũ
+	private double quantityTotal;
+	// SUM(total_price)
+	private double total;
+	private double minTotal;
+	private double maxTotal;
+
+	public SalesRollup(String dimension, String dimKey, String period, long lineCount, long quantity,
+			double quantityTotal, double total, double minTotal, double maxTotal) {
+		super();
+		this.dimension = dimension;
+		this.dimKey = dimKey;
+		this.period = period;
+		this.lineCount = lineCount;
+		this.quantity = quantity;
+		this.quantityTotal = quantityTotal;
+		this.total = total;
+		this.minTotal = minTotal;
+		this.maxTotal = maxTotal;
+	}
+
+	public String getDimension() {
+		return dimension;
+	}
+
+	public void setDimension(String dimension) {
+		this.dimension = dimension;
+	}
+
+	public String getDimKey() {
+		return dimKey;
+	}
+
+	public void setDimKey(String dimKey) {
+		this.dimKey = dimKey;
+	}
+
+	public String getPeriod() {
+		return period;
+	}
+
+	public void setPeriod(String period) {
+		this.period = period;
+	}
+
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	public void setLineCount(long lineCount) {
+		this.lineCount = lineCount;
+	}
+
+	public long getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(long quantity) {
+		this.quantity = quantity;
+	}
+
+	public double getQuantityTotal() {
+		return quantityTotal;
+	}
+
+	public void setQuantityTotal(double quantityTotal) {
+		this.quantityTotal = quantityTotal;
+	}
+
+	public double getTotal() {
+		return total;
+	}
+
+	public void setTotal(double total) {
+		this.total = total;
+	}
+
+	public double getMinTotal() {
+		return minTotal;
+	}
+
+	public void setMinTotal(double minTotal) {
+		this.minTotal = minTotal;
+	}
+
+	public double getMaxTotal() {
+		return maxTotal;
+	}
+
+	public void setMaxTotal(double maxTotal) {
+		this.maxTotal = maxTotal;
+	}
+
+	public SalesRollup() {
+		super();
+	}
+}
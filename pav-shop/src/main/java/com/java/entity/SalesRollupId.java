@@ -0,0 +1,54 @@
+package com.java.entity;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Khoá của một dòng sales_rollups: (dimension, dimKey, period)
+@SuppressWarnings("serial")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesRollupId implements Serializable {
+
+	private String dimension;
+	private String dimKey;
+	private String period;
+
+	public SalesRollupId(String dimension, String dimKey, String period) {
+		super();
+		this.dimension = dimension;
+		this.dimKey = dimKey;
+		this.period = period;
+	}
+
+	public String getDimension() {
+		return dimension;
+	}
+
+	public void setDimension(String dimension) {
+		this.dimension = dimension;
+	}
+
+	public String getDimKey() {
+		return dimKey;
+	}
+
+	public void setDimKey(String dimKey) {
+		this.dimKey = dimKey;
+	}
+
+	public String getPeriod() {
+		return period;
+	}
+
+	public void setPeriod(String period) {
+		this.period = period;
+	}
+
+	public SalesRollupId() {
+		super();
+	}
+}
@@ -1,11 +1,19 @@
 package com.java.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.java.entity.Brand;
+import com.java.entity.BrandMenuItem;
 
 @Repository
 public interface BrandRepository extends JpaRepository<Brand, Integer>{
 
+	// projection cho menu / select box: chỉ id + tên, không kéo theo danh sách products
+	@Query(value = "SELECT new com.java.entity.BrandMenuItem(x.brandId, x.brandName) FROM Brand x ORDER BY x.brandName")
+	public List<BrandMenuItem> listBrandMenu();
+
 }
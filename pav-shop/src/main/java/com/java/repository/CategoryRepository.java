@@ -1,11 +1,19 @@
 package com.java.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.java.entity.Category;
+import com.java.entity.CategoryMenuItem;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Integer>{
 
+	// projection cho menu / select box: chỉ id + tên, không kéo theo danh sách products
+	@Query(value = "SELECT new com.java.entity.CategoryMenuItem(x.categoryId, x.categoryName) FROM Category x ORDER BY x.categoryName")
+	public List<CategoryMenuItem> listCategoryMenu();
+
 }
@@ -0,0 +1,141 @@
+package com.java.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.java.entity.Order;
+import com.java.entity.OrderDetail;
+
+// Ghi đơn hàng bằng JDBC thay vì save() từng entity.
+// Với khoá IDENTITY Hibernate phải INSERT từng dòng để lấy id, ở đây chỉ header cần lấy khoá sinh ra,
+// toàn bộ order detail đi chung một batch (rewriteBatchedStatements gộp thành một câu INSERT nhiều dòng)
+// -> 2 round trip cho mỗi đơn hàng (hoặc mỗi lô đơn hàng) bất kể giỏ có bao nhiêu dòng.
+@Repository
+public class OrderBatchRepository {
+
+	private static final String INSERT_ORDER = "INSERT INTO orders (phone, orderDate, requireDate, receiver, address, description, amount, total_price, customerId, idempotencyKey) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String INSERT_ORDER_DETAIL = "INSERT INTO orderdetails (price, quantity, discount, status, total_price, orderId, productId) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	SalesRollupRepository salesRollupRepository;
+
+	// lưu header + các dòng chi tiết trong một giao dịch, gán orderId sinh ra vào order
+	@Transactional
+	public Integer saveOrder(Order order, List<OrderDetail> orderDetails) {
+		saveOrders(Collections.singletonList(order), Collections.singletonList(orderDetails));
+		return order.getOrderId();
+	}
+
+	// lưu nhiều đơn hàng một lượt: một batch header (driver trả về các khoá sinh ra theo thứ tự)
+	// và một batch cho toàn bộ order detail, orderDetails.get(i) thuộc về orders.get(i);
+	// bảng tổng hợp doanh số được cộng trong cùng giao dịch
+	@Transactional
+	public void saveOrders(List<Order> orders, List<List<OrderDetail>> orderDetails) {
+		salesRollupRepository.lockShared();
+		insertOrders(orders);
+		List<OrderDetail> rows = new ArrayList<OrderDetail>();
+		List<Integer> orderIds = new ArrayList<Integer>(orders.size());
+		for (int i = 0; i < orders.size(); i++) {
+			orderIds.add(orders.get(i).getOrderId());
+			for (OrderDetail orderDetail : orderDetails.get(i)) {
+				orderDetail.setOrder(orders.get(i));
+				rows.add(orderDetail);
+			}
+		}
+		insertOrderDetails(rows);
+		salesRollupRepository.addOrders(orderIds);
+	}
+
+	private void insertOrders(List<Order> orders) {
+		jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+			try (PreparedStatement ps = con.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS)) {
+				for (Order order : orders) {
+					ps.setString(1, order.getPhone());
+					setDate(ps, 2, order.getOrderDate());
+					setDate(ps, 3, order.getRequireDate());
+					ps.setString(4, order.getReceiver());
+					ps.setString(5, order.getAddress());
+					ps.setString(6, order.getDescription());
+					setDouble(ps, 7, order.getAmount());
+					setDouble(ps, 8, order.getTotalPrice());
+					ps.setString(9, order.getCustomer() != null ? order.getCustomer().getCustomerId() : null);
+					ps.setString(10, order.getIdempotencyKey());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+				try (ResultSet keys = ps.getGeneratedKeys()) {
+					int i = 0;
+					while (i < orders.size() && keys.next()) {
+						orders.get(i++).setOrderId(keys.getInt(1));
+					}
+					if (i < orders.size()) {
+						throw new IncorrectResultSizeDataAccessException(orders.size(), i);
+					}
+				}
+			}
+			return null;
+		});
+	}
+
+	private void insertOrderDetails(List<OrderDetail> orderDetails) {
+		if (orderDetails.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.batchUpdate(INSERT_ORDER_DETAIL, new BatchPreparedStatementSetter() {
+
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				OrderDetail orderDetail = orderDetails.get(i);
+				setDouble(ps, 1, orderDetail.getPrice());
+				ps.setInt(2, orderDetail.getQuantity());
+				setDouble(ps, 3, orderDetail.getDiscount());
+				ps.setString(4, orderDetail.getStatus());
+				ps.setDouble(5, orderDetail.getTotalPrice());
+				ps.setInt(6, orderDetail.getOrder().getOrderId());
+				ps.setInt(7, orderDetail.getProduct().getProductId());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return orderDetails.size();
+			}
+		});
+	}
+
+	private static void setDate(PreparedStatement ps, int index, Date date) throws SQLException {
+		if (date != null) {
+			ps.setDate(index, new java.sql.Date(date.getTime()));
+		} else {
+			ps.setNull(index, Types.DATE);
+		}
+	}
+
+	private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+		if (value != null) {
+			ps.setDouble(index, value);
+		} else {
+			ps.setNull(index, Types.DOUBLE);
+		}
+	}
+}
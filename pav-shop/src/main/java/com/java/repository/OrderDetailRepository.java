@@ -1,9 +1,11 @@
 package com.java.repository;
 
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.java.entity.OrderDetail;
@@ -23,97 +25,123 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Intege
     		+ "order by quantity desc\r\n"
     		+ "limit 10;", nativeQuery = true)
     public List<Object[]> topOrder();
+
+    // Tổng số lượng bán của từng sản phẩm (xếp hạng gợi ý tìm kiếm)
+    @Query(value = "SELECT o.productId, SUM(o.quantity) as quantity\r\n"
+    		+ "FROM orderdetails o\r\n"
+    		+ "group by o.productId", nativeQuery = true)
+    public List<Object[]> sumQuantityByProduct();
+
+    // Số lượng bán của từng sản phẩm theo ngày đặt hàng từ ngày from (nạp cửa sổ tuần của TrendingProducts)
+    @Query(value = "SELECT o.productId, od.orderDate, SUM(o.quantity) as quantity\r\n"
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
+    		+ "WHERE od.orderDate >= :from\r\n"
+    		+ "group by o.productId, od.orderDate", nativeQuery = true)
+    public List<Object[]> sumQuantityByProductDay(@Param("from") Date from);
     
- // thống kê theo sản phẩm được bán ra
-    @Query(value = "SELECT p.name ,  \r\n"
+    // Các thống kê gộp trực tiếp từ orderdetails, dùng khi bảng tổng hợp sales_rollups chưa dựng xong.
+    // Khoảng ngày [from, to) lọc bằng điều kiện so sánh trực tiếp trên orders.orderDate (dùng được index
+    // idx_orders_orderDate), không bọc cột trong YEAR() / MONTH() ở WHERE.
+
+    // thống kê theo sản phẩm được bán ra
+    @Query(value = "SELECT p.name ,\r\n"
     		+ "SUM(o.quantity) as quantity ,\r\n"
     		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
     		+ "AVG(o.total_price) as avg,\r\n"
     		+ "Min(o.total_price) as min, \r\n"
     		+ "max(o.total_price) as max\r\n"
-    		+ "FROM orderdetails o\r\n"
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
     		+ "INNER JOIN products p ON o.productId = p.productId\r\n"
-    		+ "GROUP BY p.name;", nativeQuery = true)
+    		+ "WHERE od.orderDate >= :from AND od.orderDate < :to\r\n"
+    		+ "GROUP BY p.name", nativeQuery = true)
+    public List<Object[]> repo(@Param("from") Date from, @Param("to") Date to);
 
-    public List<Object[]> repo();
-    
     // Thống kê theo thể loại được bán ra
-    @Query(value = "SELECT c.categoryName , \r\n"
+    @Query(value = "SELECT c.categoryName ,\r\n"
     		+ "SUM(o.quantity) as quantity ,\r\n"
     		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
-    		+ "AVG(o.total_price) as avg, \r\n"
-    		+ "Min(o.total_price) as min,\r\n"
-    		+ "max(o.total_price) as max \r\n"
-    		+ "FROM orderdetails o\r\n"
+    		+ "AVG(o.total_price) as avg,\r\n"
+    		+ "Min(o.total_price) as min, \r\n"
+    		+ "max(o.total_price) as max\r\n"
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
     		+ "INNER JOIN products p ON o.productId = p.productId\r\n"
     		+ "INNER JOIN categories c ON p.categoryId = c.categoryId\r\n"
-    		+ "GROUP BY c.categoryName;", nativeQuery = true)
+    		+ "WHERE od.orderDate >= :from AND od.orderDate < :to\r\n"
+    		+ "GROUP BY c.categoryName", nativeQuery = true)
+    public List<Object[]> repoWhereCategory(@Param("from") Date from, @Param("to") Date to);
 
-    public List<Object[]> repoWhereCategory();
-    
     // Thống kê các sp từ nhà cung cấp được bán ra
-    @Query(value = "SELECT s.brandName , \r\n"
+    @Query(value = "SELECT s.brandName ,\r\n"
     		+ "SUM(o.quantity) as quantity ,\r\n"
     		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
-    		+ "AVG(o.total_price) as avg  ,\r\n"
-    		+ "Min(o.total_price) as min  ,\r\n"
-    		+ "max(o.total_price) as max \r\n"
-    		+ "FROM orderdetails o\r\n"
+    		+ "AVG(o.total_price) as avg,\r\n"
+    		+ "Min(o.total_price) as min, \r\n"
+    		+ "max(o.total_price) as max\r\n"
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
     		+ "INNER JOIN products p ON o.productId = p.productId\r\n"
     		+ "INNER JOIN brands s ON p.brandId = s.brandId\r\n"
-    		+ "GROUP BY s.brandName;", nativeQuery = true)
+    		+ "WHERE od.orderDate >= :from AND od.orderDate < :to\r\n"
+    		+ "GROUP BY s.brandName", nativeQuery = true)
+    public List<Object[]> repoWhereBrands(@Param("from") Date from, @Param("to") Date to);
 
-    public List<Object[]> repoWhereBrands();
-    
-    // Thống kê sản phẩm theo năm // theo các năm
+    // Thống kê sản phẩm theo năm
     @Query(value = "Select YEAR(od.orderDate) ,\r\n"
     		+ "SUM(o.quantity) as quantity ,\r\n"
     		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
-    		+ "AVG(o.total_price) as avg  ,\r\n"
-    		+ "Min(o.total_price) as min  ,\r\n"
-    		+ "max(o.total_price) as max \r\n"
-    		+ "FROM orderdetails o\r\n"
-    		+ "INNER JOIN orders od ON o.orderId =od.orderId\r\n"
-    		+ "GROUP BY YEAR(od.orderDate);", nativeQuery = true)
-    public List<Object[]> repoWhereYear();
-    
-    // Thống kê sản phẩm theo tháng // theo các Tháng
-    @Query(value = "Select month(od.orderDate) ,\r\n"
-    		+ "SUM(o.quantity) as quantity ,    \r\n"
+    		+ "AVG(o.total_price) as avg,\r\n"
+    		+ "Min(o.total_price) as min, \r\n"
+    		+ "max(o.total_price) as max\r\n"
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
+    		+ "WHERE od.orderDate >= :from AND od.orderDate < :to\r\n"
+    		+ "GROUP BY YEAR(od.orderDate)\r\n"
+    		+ "ORDER BY 1", nativeQuery = true)
+    public List<Object[]> repoWhereYear(@Param("from") Date from, @Param("to") Date to);
+
+    // Thống kê sản phẩm theo tháng: từng tháng của từng năm (yyyy-MM), không gộp cùng tháng của các năm khác nhau
+    @Query(value = "Select DATE_FORMAT(od.orderDate, '%Y-%m') ,\r\n"
+    		+ "SUM(o.quantity) as quantity ,\r\n"
     		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
-    		+ "AVG(o.total_price) as avg  ,\r\n"
-    		+ "Min(o.total_price) as min  ,\r\n"
+    		+ "AVG(o.total_price) as avg,\r\n"
+    		+ "Min(o.total_price) as min, \r\n"
     		+ "max(o.total_price) as max\r\n"
-    		+ "FROM orderdetails o\r\n"
-    		+ "INNER JOIN orders od ON o.orderId =od.orderId\r\n"
-    		+ "GROUP BY month(od.orderDate);", nativeQuery = true)
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
+    		+ "WHERE od.orderDate >= :from AND od.orderDate < :to\r\n"
+    		+ "GROUP BY DATE_FORMAT(od.orderDate, '%Y-%m')\r\n"
+    		+ "ORDER BY 1", nativeQuery = true)
+    public List<Object[]> repoWhereMonth(@Param("from") Date from, @Param("to") Date to);
 
-    public List<Object[]> repoWhereMonth();
-    
-    // Thống kê sản phẩm theo quý // theo các quý
-    @Query(value = "Select QUARTER(od.orderDate),\r\n"
-    		+ "SUM(o.quantity) as quantity , \r\n"
+    // Thống kê sản phẩm theo quý: từng quý của từng năm (yyyy-Qn)
+    @Query(value = "Select CONCAT(YEAR(od.orderDate), '-Q', QUARTER(od.orderDate)) ,\r\n"
+    		+ "SUM(o.quantity) as quantity ,\r\n"
     		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
-    		+ "AVG(o.total_price) as avg, \r\n"
-    		+ "Min(o.total_price) as min,\r\n"
+    		+ "AVG(o.total_price) as avg,\r\n"
+    		+ "Min(o.total_price) as min, \r\n"
     		+ "max(o.total_price) as max\r\n"
-    		+ "FROM orderdetails o\r\n"
-    		+ "INNER JOIN orders od ON o.orderId =od.orderId\r\n"
-    		+ "GROUP By QUARTER(od.orderDate);", nativeQuery = true)
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
+    		+ "WHERE od.orderDate >= :from AND od.orderDate < :to\r\n"
+    		+ "GROUP BY CONCAT(YEAR(od.orderDate), '-Q', QUARTER(od.orderDate))\r\n"
+    		+ "ORDER BY 1", nativeQuery = true)
+    public List<Object[]> repoWhereQUARTER(@Param("from") Date from, @Param("to") Date to);
 
-    public List<Object[]> repoWhereQUARTER();
-    
     // Thống kê sản phẩm theo người đặt hàng
-   @Query(value = "SELECT c.customerId,\r\n"
-   		+ "SUM(o.quantity) as quantity,  \r\n"
-   		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
-   		+ "AVG(o.total_price) as avg,\r\n"
-   		+ "Min(o.total_price) as min, \r\n"
-   		+ "max(o.total_price) as max \r\n"
-   		+ "FROM orderdetails o\r\n"
-   		+ "INNER JOIN orders p ON o.orderId = p.orderId\r\n"
-   		+ "INNER JOIN customers c ON p.customerId = c.customerId\r\n"
-   		+ "GROUP BY c.customerId;", nativeQuery = true)
-   public List<Object[]> reportCustommer();
+    @Query(value = "SELECT c.customerId,\r\n"
+    		+ "SUM(o.quantity) as quantity ,\r\n"
+    		+ "SUM(o.quantity * o.total_price) as sum,\r\n"
+    		+ "AVG(o.total_price) as avg,\r\n"
+    		+ "Min(o.total_price) as min, \r\n"
+    		+ "max(o.total_price) as max\r\n"
+    		+ "FROM orders od\r\n"
+    		+ "INNER JOIN orderdetails o ON o.orderId = od.orderId\r\n"
+    		+ "INNER JOIN customers c ON od.customerId = c.customerId\r\n"
+    		+ "WHERE od.orderDate >= :from AND od.orderDate < :to\r\n"
+    		+ "GROUP BY c.customerId", nativeQuery = true)
+    public List<Object[]> reportCustommer(@Param("from") Date from, @Param("to") Date to);
 
 }
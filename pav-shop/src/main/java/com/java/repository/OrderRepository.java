@@ -1,6 +1,9 @@
 package com.java.repository;
 
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import com.java.entity.Order;
@@ -8,4 +11,9 @@ import com.java.entity.Order;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Integer>{
 
+	// orderId của đơn hàng đã ghi với idempotency key này (gửi trùng form checkout),
+	// chỉ khi đơn đó thuộc đúng khách đang đặt hàng: key do form gửi lên nên không tin được
+	@Query(value = "SELECT o.orderId FROM Order o WHERE o.idempotencyKey = ?1 AND o.customer.customerId = ?2")
+	public Optional<Integer> findOrderIdByIdempotencyKeyAndCustomerId(String idempotencyKey, String customerId);
+
 }
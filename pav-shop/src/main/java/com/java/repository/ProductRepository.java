@@ -1,9 +1,18 @@
 package com.java.repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
+import javax.persistence.TemporalType;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.java.entity.Product;
@@ -15,6 +24,65 @@ public interface ProductRepository extends JpaRepository<Product, Integer>{
 	@Query(value = "SELECT * FROM products ORDER BY enteredDate DESC limit 8", nativeQuery = true)
 	public List<Product> listProduct8();
 	
+	// Phân trang sản phẩm ở trang shop, sắp xếp mới nhất trước (LIMIT/OFFSET dưới DB)
+	@Query(value = "SELECT p FROM Product p ORDER BY p.enteredDate DESC, p.productId DESC",
+			countQuery = "SELECT COUNT(p) FROM Product p")
+	public Page<Product> listProductPage(Pageable pageable);
+	
+	// Phân trang keyset: mỗi tổ hợp bộ lọc (không lọc / thể loại / nhãn hiệu) có câu truy vấn riêng, không dùng
+	// (:x IS NULL OR ...) để MySQL seek thẳng trên idx_products_entered_date / idx_products_category_entered_date /
+	// idx_products_brand_entered_date. Sản phẩm có ngày nhập và chưa có ngày nhập (nằm cuối danh sách) đọc bằng
+	// hai câu khác nhau, không gộp bằng OR p.enteredDate IS NULL.
+
+	// trang đầu: các sản phẩm có ngày nhập, mới nhất trước
+	@Query(value = "SELECT p FROM Product p WHERE p.enteredDate IS NOT NULL "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public List<Product> seekProduct(Pageable pageable);
+
+	@Query(value = "SELECT p FROM Product p WHERE p.category.categoryId = :categoryId AND p.enteredDate IS NOT NULL "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public List<Product> seekProductByCategory(@Param("categoryId") Integer categoryId, Pageable pageable);
+
+	@Query(value = "SELECT p FROM Product p WHERE p.brand.brandId = :brandId AND p.enteredDate IS NOT NULL "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public List<Product> seekProductByBrand(@Param("brandId") Integer brandId, Pageable pageable);
+
+	// các sản phẩm có ngày nhập đứng sau con trỏ (enteredDate, productId)
+	@Query(value = "SELECT p FROM Product p "
+			+ "WHERE (p.enteredDate < :enteredDate OR (p.enteredDate = :enteredDate AND p.productId < :productId)) "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public List<Product> seekProductAfter(@Param("enteredDate") @Temporal(TemporalType.DATE) Date enteredDate,
+			@Param("productId") Integer productId, Pageable pageable);
+
+	@Query(value = "SELECT p FROM Product p WHERE p.category.categoryId = :categoryId "
+			+ "AND (p.enteredDate < :enteredDate OR (p.enteredDate = :enteredDate AND p.productId < :productId)) "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public List<Product> seekProductByCategoryAfter(@Param("categoryId") Integer categoryId,
+			@Param("enteredDate") @Temporal(TemporalType.DATE) Date enteredDate, @Param("productId") Integer productId,
+			Pageable pageable);
+
+	@Query(value = "SELECT p FROM Product p WHERE p.brand.brandId = :brandId "
+			+ "AND (p.enteredDate < :enteredDate OR (p.enteredDate = :enteredDate AND p.productId < :productId)) "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public List<Product> seekProductByBrandAfter(@Param("brandId") Integer brandId,
+			@Param("enteredDate") @Temporal(TemporalType.DATE) Date enteredDate, @Param("productId") Integer productId,
+			Pageable pageable);
+
+	// vùng sản phẩm chưa có ngày nhập, productId giảm dần (bắt đầu vùng: productId = Integer.MAX_VALUE)
+	@Query(value = "SELECT p FROM Product p WHERE p.enteredDate IS NULL AND p.productId < :productId "
+			+ "ORDER BY p.productId DESC")
+	public List<Product> seekUndatedProductAfter(@Param("productId") Integer productId, Pageable pageable);
+
+	@Query(value = "SELECT p FROM Product p WHERE p.category.categoryId = :categoryId "
+			+ "AND p.enteredDate IS NULL AND p.productId < :productId ORDER BY p.productId DESC")
+	public List<Product> seekUndatedProductByCategoryAfter(@Param("categoryId") Integer categoryId,
+			@Param("productId") Integer productId, Pageable pageable);
+
+	@Query(value = "SELECT p FROM Product p WHERE p.brand.brandId = :brandId "
+			+ "AND p.enteredDate IS NULL AND p.productId < :productId ORDER BY p.productId DESC")
+	public List<Product> seekUndatedProductByBrandAfter(@Param("brandId") Integer brandId,
+			@Param("productId") Integer productId, Pageable pageable);
+	
 	// Hiển thị mỗi thể loại có bao nhiêu sản phẩm
 	@Query(value = "SELECT c.categoryId,c.categoryName,\r\n"
 			+ "COUNT(*) AS SoLuong\r\n"
@@ -27,9 +95,31 @@ public interface ProductRepository extends JpaRepository<Product, Integer>{
 	@Query(value = "SELECT * FROM products where categoryId = ?", nativeQuery = true)
 	public List<Product> listProductByCategory(Integer id);
 
+	// sản phẩm theo danh mục, phân trang không đếm (chỉ cần biết còn trang sau)
+	@Query(value = "SELECT p FROM Product p WHERE p.category.categoryId = :id "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public Slice<Product> sliceProductByCategory(@Param("id") Integer id, Pageable pageable);
+
+	// sản phẩm theo danh mục, phân trang có đếm tổng số
+	@Query(value = "SELECT p FROM Product p WHERE p.category.categoryId = :id "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC",
+			countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.categoryId = :id")
+	public Page<Product> pageProductByCategory(@Param("id") Integer id, Pageable pageable);
+
 	// Sản phẩm theo danh nhãn hiệu
 	@Query(value = "SELECT * FROM products where brandId = ?", nativeQuery = true)
 	public List<Product> listProductByBrand(Integer id);
+
+	// sản phẩm theo nhãn hiệu, phân trang không đếm
+	@Query(value = "SELECT p FROM Product p WHERE p.brand.brandId = :id "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC")
+	public Slice<Product> sliceProductByBrand(@Param("id") Integer id, Pageable pageable);
+
+	// sản phẩm theo nhãn hiệu, phân trang có đếm tổng số
+	@Query(value = "SELECT p FROM Product p WHERE p.brand.brandId = :id "
+			+ "ORDER BY p.enteredDate DESC, p.productId DESC",
+			countQuery = "SELECT COUNT(p) FROM Product p WHERE p.brand.brandId = :id")
+	public Page<Product> pageProductByBrand(@Param("id") Integer id, Pageable pageable);
 	
 	// Gợi ý sản phẩm cùng thể loại
 	@Query(value = "SELECT \r\n"
@@ -40,5 +130,30 @@ public interface ProductRepository extends JpaRepository<Product, Integer>{
 	// Search Product
 	@Query(value = "SELECT * FROM products WHERE name LIKE %?1%", nativeQuery = true)
 	public List<Product> searchProduct(String name);
+
+	// nội dung văn bản để dựng chỉ mục tìm kiếm: productId, name, description
+	@Query(value = "SELECT p.productId, p.name, p.description FROM Product p")
+	public List<Object[]> listProductText();
+
+	// tên sản phẩm để dựng cây gợi ý tìm kiếm: productId, name
+	@Query(value = "SELECT p.productId, p.name FROM Product p")
+	public List<Object[]> listProductName();
+
+	// thuộc tính dùng cho bộ lọc / facet: productId, categoryId, brandId, price, discount, quantity
+	@Query(value = "SELECT p.productId, c.categoryId, b.brandId, p.price, p.discount, p.quantity "
+			+ "FROM Product p LEFT JOIN p.category c LEFT JOIN p.brand b")
+	public List<Object[]> listProductAttributes();
+
+	// tồn kho để nạp bộ đếm giữ hàng: productId, quantity (null = không quản lý tồn kho)
+	@Query(value = "SELECT p.productId, p.quantity FROM Product p")
+	public List<Object[]> listProductStock();
+
+	// giá hiện tại của các sản phẩm trong giỏ, một truy vấn IN: productId, price, discount
+	@Query(value = "SELECT p.productId, p.price, p.discount FROM Product p WHERE p.productId IN :ids")
+	public List<Object[]> listProductPrice(@Param("ids") Collection<Integer> ids);
+
+	// kiểm tra giỏ lúc đặt hàng, một truy vấn IN: productId, name, price, discount, quantity
+	@Query(value = "SELECT p.productId, p.name, p.price, p.discount, p.quantity FROM Product p WHERE p.productId IN :ids")
+	public List<Object[]> listProductCheckout(@Param("ids") Collection<Integer> ids);
 	
 }
@@ -0,0 +1,223 @@
+package com.java.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// Đọc / ghi bảng tổng hợp sales_rollups (entity SalesRollup).
+// Ghi: một câu INSERT ... SELECT ... ON DUPLICATE KEY UPDATE cho các order detail vừa thay đổi,
+// chỉ đọc đúng các dòng đó (theo orderId / orderDetailId) rồi cộng (hoặc trừ) vào mọi chiều tổng hợp.
+// Đọc: các báo cáo chỉ quét dòng tổng hợp (số sản phẩm / thể loại / tháng ...), không quét lại orderdetails.
+// Dòng đánh dấu (meta, rebuilt, ALL) ghi lại lần dựng lại gần nhất (lineCount > 0 = đã dựng, total = thời điểm)
+// và làm khoá: các giao dịch ghi đơn giữ khoá chia sẻ (lockShared) trước khi ghi, rebuild giữ khoá ghi,
+// nên rebuild không chen giữa các lần cộng / trừ và không tranh khoá trên orderdetails với chúng.
+@Repository
+public class SalesRollupRepository {
+
+	public static final String ALL = "ALL";
+
+	private static final String MARKER = "dimension = 'meta' AND dimKey = 'rebuilt' AND period = '" + ALL + "'";
+
+	// chiều tổng hợp: tên, biểu thức khoá trên orderdetails o / orders od / products p
+	private static final String[][] DIMENSIONS = {
+			{ "product", "CAST(o.productId AS CHAR)" },
+			{ "category", "CAST(p.categoryId AS CHAR)" },
+			{ "brand", "CAST(p.brandId AS CHAR)" },
+			{ "customer", "od.customerId" },
+			{ "month", "DATE_FORMAT(od.orderDate, '%Y-%m')" } };
+
+	// kỳ: toàn thời gian và theo ngày đặt hàng
+	private static final String[] PERIODS = { "'" + ALL + "'", "DATE_FORMAT(od.orderDate, '%Y-%m-%d')" };
+
+	private static final String INSERT = "INSERT INTO sales_rollups "
+			+ "(dimension, dimKey, period, lineCount, quantity, quantityTotal, total, minTotal, maxTotal) ";
+
+	// cộng thêm: min / max mở rộng theo dòng mới
+	private static final String ON_ADD = " ON DUPLICATE KEY UPDATE "
+			+ "sales_rollups.lineCount = sales_rollups.lineCount + VALUES(lineCount), "
+			+ "sales_rollups.quantity = sales_rollups.quantity + VALUES(quantity), "
+			+ "sales_rollups.quantityTotal = sales_rollups.quantityTotal + VALUES(quantityTotal), "
+			+ "sales_rollups.total = sales_rollups.total + VALUES(total), "
+			+ "sales_rollups.minTotal = LEAST(sales_rollups.minTotal, VALUES(minTotal)), "
+			+ "sales_rollups.maxTotal = GREATEST(sales_rollups.maxTotal, VALUES(maxTotal))";
+
+	// dựng lại: ghi đè giá trị (dòng do giao dịch không qua lockShared chen vào không làm rebuild lỗi trùng khoá)
+	private static final String ON_REBUILD = " ON DUPLICATE KEY UPDATE "
+			+ "sales_rollups.lineCount = VALUES(lineCount), sales_rollups.quantity = VALUES(quantity), "
+			+ "sales_rollups.quantityTotal = VALUES(quantityTotal), sales_rollups.total = VALUES(total), "
+			+ "sales_rollups.minTotal = VALUES(minTotal), sales_rollups.maxTotal = VALUES(maxTotal)";
+
+	// trừ đi: min / max không tính ngược được, giữ nguyên tới lần rebuild sau
+	private static final String ON_SUBTRACT = " ON DUPLICATE KEY UPDATE "
+			+ "sales_rollups.lineCount = sales_rollups.lineCount + VALUES(lineCount), "
+			+ "sales_rollups.quantity = sales_rollups.quantity + VALUES(quantity), "
+			+ "sales_rollups.quantityTotal = sales_rollups.quantityTotal + VALUES(quantityTotal), "
+			+ "sales_rollups.total = sales_rollups.total + VALUES(total)";
+
+	// cột của các báo cáo: SUM(quantity), SUM(quantity * total_price), AVG, MIN, MAX của total_price
+	private static final String AGGREGATES = "SUM(r.quantity) AS quantity, SUM(r.quantityTotal) AS sum, "
+			+ "SUM(r.total) / SUM(r.lineCount) AS avg, MIN(r.minTotal) AS min, MAX(r.maxTotal) AS max ";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	// cộng các order detail của những đơn hàng vừa ghi, chạy trong giao dịch ghi đơn
+	public void addOrders(Collection<Integer> orderIds) {
+		if (orderIds.isEmpty()) {
+			return;
+		}
+		jdbcTemplate.update(INSERT + select("o.orderId IN (" + placeholders(orderIds.size()) + ")", 1) + ON_ADD,
+				args(orderIds.toArray()));
+	}
+
+	public void addOrderDetail(Integer orderDetailId) {
+		jdbcTemplate.update(INSERT + select("o.orderDetailId = ?", 1) + ON_ADD, args(orderDetailId));
+	}
+
+	// gọi trước khi sửa / xoá order detail
+	public void subtractOrderDetail(Integer orderDetailId) {
+		jdbcTemplate.update(INSERT + select("o.orderDetailId = ?", -1) + ON_SUBTRACT, args(orderDetailId));
+	}
+
+	// gọi đầu giao dịch ghi / sửa / xoá order detail, trước mọi câu ghi: chờ rebuild đang chạy xong
+	// và giữ rebuild sau lại tới khi giao dịch này commit
+	public void lockShared() {
+		jdbcTemplate.queryForList("SELECT lineCount FROM sales_rollups WHERE " + MARKER + " LOCK IN SHARE MODE");
+	}
+
+	// dựng lại toàn bộ từ orderdetails (lần đầu, hoặc định kỳ để min / max chính xác lại sau khi xoá).
+	// Khoá dòng đánh dấu trước nên các giao dịch ghi đơn chờ ở lockShared thay vì chen vào giữa DELETE và INSERT
+	@Transactional
+	public void rebuild() {
+		jdbcTemplate.update(INSERT + "VALUES ('meta', 'rebuilt', '" + ALL + "', 0, 0, 0, 0, 0, 0) "
+				+ "ON DUPLICATE KEY UPDATE lineCount = lineCount");
+		jdbcTemplate.queryForList("SELECT lineCount FROM sales_rollups WHERE " + MARKER + " FOR UPDATE");
+		jdbcTemplate.update("DELETE FROM sales_rollups WHERE dimension <> 'meta'");
+		jdbcTemplate.update(INSERT + select("1 = 1", 1) + ON_REBUILD);
+		jdbcTemplate.update("UPDATE sales_rollups SET lineCount = 1, total = UNIX_TIMESTAMP() WHERE " + MARKER);
+	}
+
+	// đã dựng xong ít nhất một lần (theo dòng đánh dấu, không theo bảng có dữ liệu hay không:
+	// đơn ghi trước lần dựng đầu, ví dụ đơn nạp lại từ journal lúc khởi động, không làm bỏ qua backfill)
+	public boolean isBuilt() {
+		return !jdbcTemplate.queryForList("SELECT 1 FROM sales_rollups WHERE " + MARKER + " AND lineCount > 0")
+				.isEmpty();
+	}
+
+	// các báo cáo: nhãn + AGGREGATES. from / to = null: đọc các dòng toàn thời gian (ALL);
+	// có khoảng ngày [from, to): cộng các dòng theo ngày trong khoảng, điều kiện so sánh trực tiếp trên
+	// period (yyyy-MM-dd so sánh chuỗi đúng thứ tự ngày) nên chỉ quét đoạn index (dimension, period) tương ứng
+
+	public List<Object[]> reportProduct(LocalDate from, LocalDate to) {
+		return report("SELECT x.name, " + AGGREGATES + "FROM sales_rollups r "
+				+ "INNER JOIN products x ON x.productId = r.dimKey WHERE r.dimension = 'product' AND "
+				+ period(from, to) + " GROUP BY x.name", from, to);
+	}
+
+	public List<Object[]> reportCategory(LocalDate from, LocalDate to) {
+		return report("SELECT x.categoryName, " + AGGREGATES + "FROM sales_rollups r "
+				+ "INNER JOIN categories x ON x.categoryId = r.dimKey WHERE r.dimension = 'category' AND "
+				+ period(from, to) + " GROUP BY x.categoryName", from, to);
+	}
+
+	public List<Object[]> reportBrand(LocalDate from, LocalDate to) {
+		return report("SELECT x.brandName, " + AGGREGATES + "FROM sales_rollups r "
+				+ "INNER JOIN brands x ON x.brandId = r.dimKey WHERE r.dimension = 'brand' AND "
+				+ period(from, to) + " GROUP BY x.brandName", from, to);
+	}
+
+	public List<Object[]> reportCustomer(LocalDate from, LocalDate to) {
+		return report("SELECT x.customerId, " + AGGREGATES + "FROM sales_rollups r "
+				+ "INNER JOIN customers x ON x.customerId = r.dimKey WHERE r.dimension = 'customer' AND "
+				+ period(from, to) + " GROUP BY x.customerId", from, to);
+	}
+
+	// năm / tháng / quý gộp từ chiều month (dimKey = yyyy-MM): tháng và quý luôn kèm năm
+	public List<Object[]> reportYear(LocalDate from, LocalDate to) {
+		return reportMonthly("LEFT(r.dimKey, 4)", from, to);
+	}
+
+	public List<Object[]> reportMonth(LocalDate from, LocalDate to) {
+		return reportMonthly("r.dimKey", from, to);
+	}
+
+	public List<Object[]> reportQuarter(LocalDate from, LocalDate to) {
+		return reportMonthly("CONCAT(LEFT(r.dimKey, 4), '-Q', (CAST(RIGHT(r.dimKey, 2) AS UNSIGNED) + 2) DIV 3)", from,
+				to);
+	}
+
+	private List<Object[]> reportMonthly(String bucket, LocalDate from, LocalDate to) {
+		return report("SELECT " + bucket + " AS bucket, " + AGGREGATES + "FROM sales_rollups r "
+				+ "WHERE r.dimension = 'month' AND " + period(from, to) + " GROUP BY bucket ORDER BY bucket", from, to);
+	}
+
+	private static String period(LocalDate from, LocalDate to) {
+		if (from == null && to == null) {
+			return "r.period = '" + ALL + "' AND r.lineCount > 0";
+		}
+		return "r.period >= ? AND r.period < ? AND r.period <> '" + ALL + "'";
+	}
+
+	private List<Object[]> report(String sql, LocalDate from, LocalDate to) {
+		if (from == null && to == null) {
+			return report(sql);
+		}
+		// ALL > mọi chuỗi ngày nên to mặc định là ngày xa nhất vẫn không lấy phải dòng ALL
+		return report(sql, from != null ? from.toString() : "0000-01-01", to != null ? to.toString() : "9999-12-31");
+	}
+
+	private List<Object[]> report(String sql, Object... args) {
+		return jdbcTemplate.query(sql, (rs, i) -> {
+			Object[] row = new Object[6];
+			for (int c = 0; c < row.length; c++) {
+				row[c] = rs.getObject(c + 1);
+			}
+			return row;
+		}, args);
+	}
+
+	// các dòng order detail thoả where, nhân bản cho từng (chiều, kỳ) rồi gộp theo khoá tổng hợp;
+	// sign = -1 để trừ (min / max khi trừ không được dùng)
+	private static String select(String where, int sign) {
+		StringBuilder lines = new StringBuilder();
+		for (String[] dimension : DIMENSIONS) {
+			for (String period : PERIODS) {
+				if (lines.length() > 0) {
+					lines.append(" UNION ALL ");
+				}
+				lines.append("SELECT '").append(dimension[0]).append("' AS dimension, COALESCE(").append(dimension[1])
+						.append(", '') AS dimKey, COALESCE(").append(period).append(", '') AS period, ")
+						.append("o.quantity, o.total_price FROM orderdetails o ")
+						.append("INNER JOIN orders od ON o.orderId = od.orderId ")
+						.append("LEFT JOIN products p ON o.productId = p.productId WHERE ").append(where);
+			}
+		}
+		return "SELECT l.dimension, l.dimKey, l.period, " + sign + " * COUNT(*), " + sign + " * SUM(l.quantity), "
+				+ sign + " * SUM(l.quantity * l.total_price), " + sign + " * SUM(l.total_price), "
+				+ "MIN(l.total_price), MAX(l.total_price) FROM (" + lines + ") l "
+				+ "GROUP BY l.dimension, l.dimKey, l.period";
+	}
+
+	// điều kiện where lặp lại ở mỗi nhánh UNION ALL nên tham số cũng lặp lại
+	private static Object[] args(Object... values) {
+		int branches = DIMENSIONS.length * PERIODS.length;
+		Object[] args = new Object[values.length * branches];
+		for (int i = 0; i < branches; i++) {
+			System.arraycopy(values, 0, args, i * values.length, values.length);
+		}
+		return args;
+	}
+
+	private static String placeholders(int n) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			sb.append(i == 0 ? "?" : ", ?");
+		}
+		return sb.toString();
+	}
+}
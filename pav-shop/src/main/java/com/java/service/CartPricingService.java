@@ -0,0 +1,163 @@
+package com.java.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.java.entity.CartItem;
+import com.java.entity.CartQuote;
+import com.java.repository.ProductRepository;
+
+// Tính tiền giỏ hàng theo giá / giảm giá hiện tại thay vì đi qua từng cartItem.getProduct().
+// Giá được lấy cho cả giỏ bằng một truy vấn IN (chỉ các id chưa có trong cache nóng),
+// kết quả CartQuote được ghi nhớ trong request nên trang giỏ hàng, checkout dùng chung một lần tính.
+// Header / API giỏ hàng không tính giá mà đọc tổng chạy của giỏ (getSummary), giá đã lưu trong giỏ được làm mới
+// khi thêm vào giỏ và mỗi lần trang giỏ hàng / checkout tính tiền (quote(ShoppingCartService)).
+@Service
+public class CartPricingService {
+
+	private static final String QUOTE_ATTRIBUTE = CartPricingService.class.getName() + ".quote";
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Value("${pavshop.cart.price-ttl-seconds:60}")
+	private long ttlSeconds;
+
+	private final Map<Integer, Price> cache = new ConcurrentHashMap<Integer, Price>();
+
+	// giá hiện tại của các sản phẩm, sản phẩm không còn tồn tại thì không có trong kết quả
+	public Map<Integer, Price> prices(Collection<Integer> productIds) {
+		long now = System.nanoTime();
+		long ttl = TimeUnit.SECONDS.toNanos(ttlSeconds);
+		Map<Integer, Price> result = new HashMap<Integer, Price>();
+		List<Integer> misses = new ArrayList<Integer>();
+		for (Integer productId : productIds) {
+			Price price = cache.get(productId);
+			if (price != null && now - price.loadedAt < ttl) {
+				result.put(productId, price);
+			} else {
+				misses.add(productId);
+			}
+		}
+		if (!misses.isEmpty()) {
+			for (Object[] row : productRepository.listProductPrice(misses)) {
+				Price price = new Price((Double) row[1], (Double) row[2], now);
+				cache.put((Integer) row[0], price);
+				result.put((Integer) row[0], price);
+			}
+		}
+		return result;
+	}
+
+	// giá vừa đọc từ DB ở nơi khác (kiểm tra checkout): cập nhật cache để trang giỏ / checkout hiển thị giống
+	public void refresh(Integer productId, Double price, Double discount) {
+		cache.put(productId, new Price(price, discount, System.nanoTime()));
+	}
+
+	// admin sửa / xoá sản phẩm: bỏ giá đã cache
+	public void invalidate(Integer productId) {
+		cache.remove(productId);
+	}
+
+	// tổng tiền của giỏ, tính một lần cho mỗi request và mỗi danh sách cartItems
+	public CartQuote quote(Collection<CartItem> cartItems) {
+		return memo(cartItems).quote;
+	}
+
+	// tổng tiền cho trang giỏ hàng / checkout: dòng nào có giá hiện tại khác giá đã lưu thì cập nhật luôn trong giỏ,
+	// để tổng chạy mà header / API giỏ hàng đọc khớp với trang này. Gọi trước getCartItems() để danh sách hiển thị
+	// theo giá mới.
+	public CartQuote quote(ShoppingCartService shoppingCartService) {
+		if (shoppingCartService.getCount() == 0) {
+			return new CartQuote();
+		}
+		Memo memo = memo(shoppingCartService.getCartItems());
+		shoppingCartService.reprice(memo.prices);
+		return memo.quote;
+	}
+
+	private Memo memo(Collection<CartItem> cartItems) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			Memo memo = (Memo) attributes.getAttribute(QUOTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+			if (memo != null && memo.cartItems == cartItems && memo.size == cartItems.size()) {
+				return memo;
+			}
+		}
+		Memo memo = compute(cartItems);
+		if (attributes != null) {
+			attributes.setAttribute(QUOTE_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+		}
+		return memo;
+	}
+
+	private Memo compute(Collection<CartItem> cartItems) {
+		List<Integer> productIds = new ArrayList<Integer>(cartItems.size());
+		for (CartItem cartItem : cartItems) {
+			productIds.add(cartItem.getProductId());
+		}
+		Map<Integer, Price> prices = prices(productIds);
+
+		int quantity = 0;
+		double amount = 0;
+		double totalPrice = 0;
+		for (CartItem cartItem : cartItems) {
+			Price price = prices.get(cartItem.getProductId());
+			// sản phẩm vừa bị xoá: dùng giá lúc thêm vào giỏ
+			double unitPrice = price != null ? price.getPrice() : cartItem.getUnitPrice();
+			double discount = price != null ? price.getDiscount() : 0;
+			double linePrice = cartItem.getQuantity() * unitPrice;
+			quantity += cartItem.getQuantity();
+			amount += linePrice;
+			totalPrice += linePrice - (linePrice * discount / 100);
+		}
+		return new Memo(cartItems, prices, new CartQuote(cartItems.size(), quantity, amount, totalPrice));
+	}
+
+	public static final class Price {
+
+		private final double price;
+		private final double discount;
+		private final long loadedAt;
+
+		Price(Double price, Double discount, long loadedAt) {
+			this.price = price != null ? price : 0;
+			this.discount = discount != null ? discount : 0;
+			this.loadedAt = loadedAt;
+		}
+
+		public double getPrice() {
+			return price;
+		}
+
+		public double getDiscount() {
+			return discount;
+		}
+	}
+
+	private static final class Memo {
+
+		final Collection<CartItem> cartItems;
+		final int size;
+		final Map<Integer, Price> prices;
+		final CartQuote quote;
+
+		Memo(Collection<CartItem> cartItems, Map<Integer, Price> prices, CartQuote quote) {
+			this.cartItems = cartItems;
+			this.size = cartItems.size();
+			this.prices = prices;
+			this.quote = quote;
+		}
+	}
+}
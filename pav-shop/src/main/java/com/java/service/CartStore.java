@@ -0,0 +1,22 @@
+package com.java.service;
+
+import java.util.regex.Pattern;
+
+// Nơi lưu giỏ hàng gọn (CompactCart) theo mã giỏ, tách khỏi HTTP session.
+// Chọn bằng pavshop.cart.store: memory (mặc định) hoặc file.
+public interface CartStore {
+
+	// mã giỏ lấy từ cookie do khách gửi lên, chỉ chấp nhận dạng UUID / ký tự an toàn cho tên file
+	Pattern CART_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+	static boolean isValidCartId(String cartId) {
+		return cartId != null && CART_ID.matcher(cartId).matches();
+	}
+
+	// null nếu chưa có giỏ
+	CompactCart load(String cartId);
+
+	void save(String cartId, CompactCart cart);
+
+	void delete(String cartId);
+}
@@ -0,0 +1,90 @@
+package com.java.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.BrandMenuItem;
+import com.java.entity.CategoryMenuItem;
+import com.java.repository.BrandRepository;
+import com.java.repository.CategoryRepository;
+
+// Cache đọc-xuyên (read-through) cho danh sách thể loại / nhãn hiệu dùng ở menu và select box.
+// Hết hạn sau TTL, hoặc bị xoá ngay khi admin thêm / sửa / xoá thể loại, nhãn hiệu.
+@Service
+public class CatalogMenuCache {
+
+	@Autowired
+	CategoryRepository categoryRepository;
+
+	@Autowired
+	BrandRepository brandRepository;
+
+	@Value("${pavshop.cache.menu-ttl-seconds:300}")
+	private long ttlSeconds;
+
+	private final Entry<CategoryMenuItem> categories = new Entry<CategoryMenuItem>(this::loadCategories);
+
+	private final Entry<BrandMenuItem> brands = new Entry<BrandMenuItem>(this::loadBrands);
+
+	public List<CategoryMenuItem> categories() {
+		return categories.get(TimeUnit.SECONDS.toNanos(ttlSeconds));
+	}
+
+	public List<BrandMenuItem> brands() {
+		return brands.get(TimeUnit.SECONDS.toNanos(ttlSeconds));
+	}
+
+	public void invalidateCategories() {
+		categories.invalidate();
+	}
+
+	public void invalidateBrands() {
+		brands.invalidate();
+	}
+
+	private List<CategoryMenuItem> loadCategories() {
+		return categoryRepository.listCategoryMenu();
+	}
+
+	private List<BrandMenuItem> loadBrands() {
+		return brandRepository.listBrandMenu();
+	}
+
+	// một danh sách được cache kèm thời điểm nạp, chỉ một luồng nạp lại khi hết hạn
+	private static final class Entry<T> {
+
+		private final Supplier<List<T>> loader;
+		private volatile List<T> value;
+		private volatile long loadedAt;
+
+		Entry(Supplier<List<T>> loader) {
+			this.loader = loader;
+		}
+
+		List<T> get(long ttlNanos) {
+			List<T> current = value;
+			if (current != null && System.nanoTime() - loadedAt < ttlNanos) {
+				return current;
+			}
+			synchronized (this) {
+				current = value;
+				if (current == null || System.nanoTime() - loadedAt >= ttlNanos) {
+					current = Collections.unmodifiableList(loader.get());
+					loadedAt = System.nanoTime();
+					value = current;
+				}
+				return current;
+			}
+		}
+
+		void invalidate() {
+			value = null;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.java.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Chống đặt hàng trùng: mỗi form checkout mang một idempotency key, lần gửi đầu được xử lý,
+// các lần gửi lại (bấm đúp, trình duyệt gửi lại POST) nhận lại kết quả của lần đầu mà không ghi DB.
+// Key được giữ theo (khách hàng, key): khách khác gửi cùng key coi như một key mới, không bao giờ nhận lại
+// đơn hàng của người khác. Giữ tối đa max-keys key trong bộ nhớ, mỗi key sống ttl-minutes; quá giới hạn thì
+// cột orders.idempotencyKey (UNIQUE) là lớp chặn cuối.
+@Service
+public class CheckoutIdempotencyStore {
+
+	private static final Pattern KEY = Pattern.compile("[A-Za-z0-9-]{8,64}");
+
+	// lần gửi trùng chờ lần đầu xử lý xong tối đa chừng này
+	private static final long WAIT_MS = 5000;
+
+	@Value("${pavshop.checkout.idempotency-max-keys:10000}")
+	private int maxKeys;
+
+	@Value("${pavshop.checkout.idempotency-ttl-minutes:60}")
+	private long ttlMinutes;
+
+	// thứ tự chèn, tràn thì bỏ key cũ nhất
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>() {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxKeys;
+		}
+	};
+
+	public static boolean isValidKey(String key) {
+		return key != null && KEY.matcher(key).matches();
+	}
+
+	// null = lần gửi này được xử lý (lần đầu, hoặc lần đầu đã abort nên tiếp quản key), người gọi xử lý rồi
+	// gọi complete / abort; khác null = lần gửi trùng, trả về kết quả của lần đầu (PENDING nếu chờ quá WAIT_MS
+	// mà lần đầu vẫn chưa xong)
+	public Result begin(String owner, String key) throws InterruptedException {
+		String slot = slot(owner, key);
+		long deadline = System.currentTimeMillis() + WAIT_MS;
+		while (true) {
+			Entry entry;
+			synchronized (entries) {
+				entry = entries.get(slot);
+				if (entry == null || entry.isExpired()) {
+					entries.put(slot, new Entry(expiresAt()));
+					return null;
+				}
+			}
+			long wait = deadline - System.currentTimeMillis();
+			if (wait <= 0 || !entry.done.await(wait, TimeUnit.MILLISECONDS)) {
+				return Result.PENDING;
+			}
+			Result result = entry.result;
+			if (result != null) {
+				return result;
+			}
+			// lần đầu đã abort và bỏ key: vòng lại để lần gửi này tiếp quản
+		}
+	}
+
+	public void complete(String owner, String key, Integer orderId, String orderReference) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(slot(owner, key));
+		}
+		if (entry != null) {
+			entry.result = new Result(orderId, orderReference);
+			entry.done.countDown();
+		}
+	}
+
+	// lần đầu thất bại (hết hàng, hàng đợi đầy, lỗi DB): bỏ key để khách gửi lại được
+	public void abort(String owner, String key) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.remove(slot(owner, key));
+		}
+		if (entry != null) {
+			entry.done.countDown();
+		}
+	}
+
+	@Scheduled(fixedDelay = 60000)
+	public void expire() {
+		synchronized (entries) {
+			for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+				if (it.next().isExpired()) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	// độ dài owner đứng đầu nên không có hai cặp (owner, key) nào trùng chuỗi
+	private static String slot(String owner, String key) {
+		return owner.length() + ":" + owner + key;
+	}
+
+	private long expiresAt() {
+		return System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+	}
+
+	// kết quả của lần gửi đầu: orderId (ghi trực tiếp) hoặc orderReference (qua hàng đợi)
+	public static final class Result {
+
+		static final Result PENDING = new Result(null, null);
+
+		private final Integer orderId;
+		private final String orderReference;
+
+		public Result(Integer orderId, String orderReference) {
+			this.orderId = orderId;
+			this.orderReference = orderReference;
+		}
+
+		public Integer getOrderId() {
+			return orderId;
+		}
+
+		public String getOrderReference() {
+			return orderReference;
+		}
+
+		public boolean isPending() {
+			return orderId == null && orderReference == null;
+		}
+	}
+
+	private static final class Entry {
+
+		final long expiresAt;
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Result result;
+
+		Entry(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() > expiresAt;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.java.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.CartItem;
+import com.java.entity.CheckoutSnapshot;
+import com.java.entity.Order;
+import com.java.entity.OrderDetail;
+import com.java.entity.Product;
+import com.java.repository.ProductRepository;
+
+// Bước kiểm tra giỏ hàng trước khi ghi đơn: một truy vấn IN lấy giá, giảm giá, tồn kho hiện tại của cả giỏ,
+// dòng có sản phẩm đã bị xoá / không đủ hàng bị từ chối, các dòng còn lại được tính lại theo giá hiện tại.
+// Số truy vấn không phụ thuộc số dòng trong giỏ, không có lazy load Product nào.
+@Service
+public class CheckoutValidator {
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	CartPricingService cartPricingService;
+
+	@Autowired
+	StockReservationService stockReservationService;
+
+	public CheckoutSnapshot snapshot(Collection<CartItem> cartItems) {
+		List<Integer> productIds = new ArrayList<Integer>(cartItems.size());
+		for (CartItem cartItem : cartItems) {
+			productIds.add(cartItem.getProductId());
+		}
+		Map<Integer, Object[]> rows = new HashMap<Integer, Object[]>();
+		if (!productIds.isEmpty()) {
+			for (Object[] row : productRepository.listProductCheckout(productIds)) {
+				rows.put((Integer) row[0], row);
+				cartPricingService.refresh((Integer) row[0], (Double) row[2], (Double) row[3]);
+			}
+		}
+
+		List<CheckoutSnapshot.Line> lines = new ArrayList<CheckoutSnapshot.Line>(cartItems.size());
+		List<String> rejected = new ArrayList<String>();
+		boolean repriced = false;
+		for (CartItem cartItem : cartItems) {
+			Object[] row = rows.get(cartItem.getProductId());
+			if (row == null) {
+				rejected.add(cartItem.getName());
+				continue;
+			}
+			// tồn kho thường được kiểm bằng bộ đếm giữ hàng, chỉ dùng cột quantity khi sản phẩm chưa có bộ đếm
+			Integer quantity = (Integer) row[4];
+			if (quantity != null && stockReservationService.available(cartItem.getProductId()) == null
+					&& quantity < cartItem.getQuantity()) {
+				rejected.add((String) row[1]);
+				continue;
+			}
+			double price = row[2] != null ? (Double) row[2] : 0;
+			double discount = row[3] != null ? (Double) row[3] : 0;
+			if (price != cartItem.getUnitPrice()) {
+				repriced = true;
+			}
+			lines.add(new CheckoutSnapshot.Line(cartItem.getProductId(), (String) row[1], cartItem.getQuantity(), price,
+					discount));
+		}
+		return new CheckoutSnapshot(lines, rejected, repriced);
+	}
+
+	// order detail cho OrderBatchRepository / OrderIntakeQueue, Product chỉ mang khoá
+	public List<OrderDetail> orderDetails(CheckoutSnapshot snapshot, Order order, String status) {
+		List<OrderDetail> orderDetails = new ArrayList<OrderDetail>(snapshot.getLines().size());
+		for (CheckoutSnapshot.Line line : snapshot.getLines()) {
+			Product product = new Product();
+			product.setProductId(line.getProductId());
+			OrderDetail orderDetail = new OrderDetail();
+			orderDetail.setQuantity(line.getQuantity());
+			orderDetail.setPrice(line.getPrice());
+			orderDetail.setDiscount(line.getDiscount());
+			orderDetail.setTotalPrice(line.getTotalPrice());
+			orderDetail.setStatus(status);
+			orderDetail.setOrder(order);
+			orderDetail.setProduct(product);
+			orderDetails.add(orderDetail);
+		}
+		return orderDetails;
+	}
+}
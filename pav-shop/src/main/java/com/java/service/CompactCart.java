@@ -0,0 +1,288 @@
+package com.java.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import com.java.entity.CartSummary;
+
+// Giỏ hàng gọn: productId -> (số lượng, giá, giảm giá lúc thêm vào giỏ) trong các mảng nguyên thuỷ,
+// bảng băm địa chỉ mở (open addressing, dò tuyến tính), không giữ entity Product nào.
+// Không an toàn đa luồng, người gọi tự đồng bộ.
+public final class CompactCart {
+
+	private static final int EMPTY = 0;
+	private static final int MIN_CAPACITY = 8;
+
+	// productId > 0, ô có key = 0 là ô trống
+	private int[] keys;
+	private int[] quantities;
+	private double[] prices;
+	private double[] discounts;
+	private int size;
+
+	// tổng chạy, cập nhật theo từng thao tác thay vì duyệt lại cả giỏ
+	private int totalQuantity;
+	private double amount;
+	private double totalPrice;
+
+	public CompactCart() {
+		allocate(MIN_CAPACITY);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// cộng thêm số lượng, giá / giảm giá được cập nhật theo lần thêm mới nhất
+	public void add(int productId, int quantity, double price, double discount) {
+		int slot = find(productId);
+		if (slot >= 0) {
+			subtract(slot);
+			quantities[slot] += quantity;
+			prices[slot] = price;
+			discounts[slot] = discount;
+			accumulate(slot);
+			return;
+		}
+		if ((size + 1) * 4 > keys.length * 3) {
+			rehash(keys.length * 2);
+		}
+		slot = insertionSlot(productId);
+		keys[slot] = productId;
+		quantities[slot] = quantity;
+		prices[slot] = price;
+		discounts[slot] = discount;
+		size++;
+		accumulate(slot);
+	}
+
+	// đặt lại số lượng của một dòng đã có, false nếu chưa có trong giỏ
+	public boolean setQuantity(int productId, int quantity) {
+		int slot = find(productId);
+		if (slot < 0) {
+			return false;
+		}
+		subtract(slot);
+		quantities[slot] = quantity;
+		accumulate(slot);
+		return true;
+	}
+
+	// cập nhật giá / giảm giá của một dòng đã có, false nếu chưa có trong giỏ hoặc giá không đổi
+	public boolean setPrice(int productId, double price, double discount) {
+		int slot = find(productId);
+		if (slot < 0 || (prices[slot] == price && discounts[slot] == discount)) {
+			return false;
+		}
+		subtract(slot);
+		prices[slot] = price;
+		discounts[slot] = discount;
+		accumulate(slot);
+		return true;
+	}
+
+	public boolean contains(int productId) {
+		return find(productId) >= 0;
+	}
+
+	public int quantity(int productId) {
+		int slot = find(productId);
+		return slot < 0 ? 0 : quantities[slot];
+	}
+
+	public boolean remove(int productId) {
+		int slot = find(productId);
+		if (slot < 0) {
+			return false;
+		}
+		subtract(slot);
+		// xoá kiểu dời lùi (backward shift) để chuỗi dò không bị đứt, không cần tombstone
+		int mask = keys.length - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (keys[next] != EMPTY) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				quantities[hole] = quantities[next];
+				prices[hole] = prices[next];
+				discounts[hole] = discounts[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = EMPTY;
+		size--;
+		if (size == 0) {
+			// bỏ sai số dấu phẩy động tích luỹ
+			amount = 0;
+			totalPrice = 0;
+		}
+		return true;
+	}
+
+	public void clear() {
+		if (size > 0) {
+			allocate(MIN_CAPACITY);
+		}
+		totalQuantity = 0;
+		amount = 0;
+		totalPrice = 0;
+	}
+
+	public int totalQuantity() {
+		return totalQuantity;
+	}
+
+	// tổng tiền chưa giảm giá theo giá lúc thêm vào giỏ
+	public double amount() {
+		return amount;
+	}
+
+	// tổng tiền sau giảm giá theo giá lúc thêm vào giỏ
+	public double totalPrice() {
+		return totalPrice;
+	}
+
+	public CartSummary summary() {
+		return new CartSummary(size, totalQuantity, amount, totalPrice);
+	}
+
+	// duyệt các dòng theo thứ tự ô trong bảng
+	public void forEach(Line line) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				line.accept(keys[i], quantities[i], prices[i], discounts[i]);
+			}
+		}
+	}
+
+	public int[] productIds() {
+		int[] ids = new int[size];
+		int n = 0;
+		for (int key : keys) {
+			if (key != EMPTY) {
+				ids[n++] = key;
+			}
+		}
+		return ids;
+	}
+
+	// định dạng nhị phân: size, rồi từng dòng (productId, quantity, price, discount)
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + size * 24);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(size);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != EMPTY) {
+					out.writeInt(keys[i]);
+					out.writeInt(quantities[i]);
+					out.writeDouble(prices[i]);
+					out.writeDouble(discounts[i]);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static CompactCart fromBytes(byte[] data) {
+		CompactCart cart = new CompactCart();
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				cart.add(in.readInt(), in.readInt(), in.readDouble(), in.readDouble());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return cart;
+	}
+
+	private void accumulate(int slot) {
+		double line = quantities[slot] * prices[slot];
+		totalQuantity += quantities[slot];
+		amount += line;
+		totalPrice += line - (line * discounts[slot] / 100);
+	}
+
+	private void subtract(int slot) {
+		double line = quantities[slot] * prices[slot];
+		totalQuantity -= quantities[slot];
+		amount -= line;
+		totalPrice -= line - (line * discounts[slot] / 100);
+	}
+
+	private int find(int productId) {
+		int mask = keys.length - 1;
+		int slot = hash(productId) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == productId) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int insertionSlot(int productId) {
+		int mask = keys.length - 1;
+		int slot = hash(productId) & mask;
+		while (keys[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldQuantities = quantities;
+		double[] oldPrices = prices;
+		double[] oldDiscounts = discounts;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = insertionSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				quantities[slot] = oldQuantities[i];
+				prices[slot] = oldPrices[i];
+				discounts[slot] = oldDiscounts[i];
+				size++;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		quantities = new int[capacity];
+		prices = new double[capacity];
+		discounts = new double[capacity];
+		size = 0;
+	}
+
+	// trộn bit để các productId liên tiếp không dồn vào cùng một cụm
+	private static int hash(int productId) {
+		int h = productId * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public String toString() {
+		return "CompactCart" + Arrays.toString(productIds());
+	}
+
+	public interface Line {
+
+		void accept(int productId, int quantity, double price, double discount);
+	}
+}
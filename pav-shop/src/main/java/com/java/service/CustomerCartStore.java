@@ -0,0 +1,68 @@
+package com.java.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Giỏ hàng lâu dài theo khách hàng (bảng customer_carts), ghi sau (write-behind):
+// mỗi thay đổi chỉ thay bản mới nhất của khách trong bộ nhớ, định kỳ ghi dồn tất cả bằng một batch upsert,
+// nên bấm thêm vào giỏ 10 lần giữa hai lần flush chỉ tốn một lần ghi.
+@Service
+public class CustomerCartStore {
+
+	private static final String UPSERT = "INSERT INTO customer_carts (customerId, data, updatedAt) VALUES (?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE data = VALUES(data), updatedAt = VALUES(updatedAt)";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	// customerId -> nội dung giỏ chưa ghi xuống DB
+	private final Map<String, byte[]> dirty = new ConcurrentHashMap<String, byte[]>();
+
+	// đọc giỏ của khách, ưu tiên bản chưa flush; null nếu khách chưa có giỏ
+	public CompactCart load(String customerId) {
+		byte[] data = dirty.get(customerId);
+		if (data == null) {
+			List<byte[]> rows = jdbcTemplate.query("SELECT data FROM customer_carts WHERE customerId = ?",
+					(rs, i) -> rs.getBytes(1), customerId);
+			data = rows.isEmpty() ? null : rows.get(0);
+		}
+		return data == null ? null : CompactCart.fromBytes(data);
+	}
+
+	public void markDirty(String customerId, CompactCart cart) {
+		dirty.put(customerId, cart.toBytes());
+	}
+
+	@Scheduled(initialDelayString = "${pavshop.cart.persist-flush-ms:10000}", fixedDelayString = "${pavshop.cart.persist-flush-ms:10000}")
+	public void flush() {
+		if (dirty.isEmpty()) {
+			return;
+		}
+		List<Map.Entry<String, byte[]>> pending = new ArrayList<Map.Entry<String, byte[]>>(dirty.entrySet());
+		List<Object[]> rows = new ArrayList<Object[]>(pending.size());
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		for (Map.Entry<String, byte[]> entry : pending) {
+			rows.add(new Object[] { entry.getKey(), entry.getValue(), now });
+		}
+		jdbcTemplate.batchUpdate(UPSERT, rows);
+		// chỉ bỏ các bản vừa ghi, bản mới hơn đến trong lúc ghi sẽ được flush lần sau
+		for (Map.Entry<String, byte[]> entry : pending) {
+			dirty.remove(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		flush();
+	}
+}
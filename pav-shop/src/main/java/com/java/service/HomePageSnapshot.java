@@ -0,0 +1,99 @@
+package com.java.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.Product;
+import com.java.repository.ProductRepository;
+
+// Ảnh chụp (snapshot) dữ liệu trang chủ: 8 sản phẩm mới nhất (top bán chạy do TrendingProducts giữ).
+// Mọi request đọc chung một bản đã dựng sẵn; việc dựng lại chạy nền (định kỳ hoặc khi admin sửa sản phẩm).
+@Service
+public class HomePageSnapshot {
+
+	private static final Logger log = LoggerFactory.getLogger(HomePageSnapshot.class);
+
+	@Autowired
+	ProductRepository productRepository;
+
+	private volatile Snapshot snapshot = new Snapshot(Collections.<Product>emptyList());
+
+	// chỉ một lần dựng lại chạy tại một thời điểm
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "home-snapshot");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// nạp lần đầu lúc khởi động, lỗi thì giữ danh sách rỗng và chờ lần làm mới sau
+	@PostConstruct
+	public void init() {
+		refreshing.set(true);
+		try {
+			rebuild();
+		} catch (RuntimeException e) {
+			log.error("Không dựng được snapshot trang chủ lúc khởi động", e);
+		} finally {
+			refreshing.set(false);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	public List<Product> newestProducts() {
+		return snapshot.newestProducts;
+	}
+
+	@Scheduled(initialDelayString = "${pavshop.cache.home-refresh-ms:60000}", fixedDelayString = "${pavshop.cache.home-refresh-ms:60000}")
+	public void refresh() {
+		requestRefresh();
+	}
+
+	// yêu cầu dựng lại ở luồng nền, bỏ qua nếu đang có một lần dựng lại chưa xong
+	public void requestRefresh() {
+		if (!refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		executor.execute(() -> {
+			try {
+				rebuild();
+			} catch (RuntimeException e) {
+				// giữ snapshot cũ, lần sau thử lại
+				log.warn("Không dựng lại được snapshot trang chủ, giữ bản cũ", e);
+			} finally {
+				refreshing.set(false);
+			}
+		});
+	}
+
+	private void rebuild() {
+		List<Product> newest = productRepository.listProduct8();
+		snapshot = new Snapshot(Collections.unmodifiableList(newest));
+	}
+
+	private static final class Snapshot {
+
+		final List<Product> newestProducts;
+
+		Snapshot(List<Product> newestProducts) {
+			this.newestProducts = newestProducts;
+		}
+	}
+}
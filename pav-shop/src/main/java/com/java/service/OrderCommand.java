@@ -0,0 +1,203 @@
+package com.java.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.java.entity.Customer;
+import com.java.entity.Order;
+import com.java.entity.OrderDetail;
+import com.java.entity.Product;
+
+// Lệnh ghi một đơn hàng nằm trong hàng đợi / journal.
+// Chỉ giữ các cột cần INSERT, customer và product thay bằng bản chỉ có khoá.
+// Journal không dùng Java serialization của entity (đổi entity là đổi serialVersionUID ngầm định, journal cũ
+// không đọc lại được): writeTo / readFrom ghi một bản ghi phẳng có số phiên bản định dạng, lúc nạp lại thì dựng
+// lại Order / OrderDetail từ bản ghi đó.
+public final class OrderCommand {
+
+	// tăng khi đổi định dạng, readFrom vẫn phải đọc được mọi phiên bản cũ còn có thể nằm trên đĩa
+	private static final int FORMAT_VERSION = 1;
+
+	private final String reference;
+	private final Order order;
+	private final List<OrderDetail> orderDetails;
+
+	private OrderCommand(String reference, Order order, List<OrderDetail> orderDetails) {
+		this.reference = reference;
+		this.order = order;
+		this.orderDetails = orderDetails;
+	}
+
+	public static OrderCommand of(String reference, Order source, List<OrderDetail> sourceDetails) {
+		Order order = new Order();
+		order.setPhone(source.getPhone());
+		order.setOrderDate(source.getOrderDate());
+		order.setRequireDate(source.getRequireDate());
+		order.setReceiver(source.getReceiver());
+		order.setAddress(source.getAddress());
+		order.setDescription(source.getDescription());
+		order.setAmount(source.getAmount());
+		order.setTotalPrice(source.getTotalPrice());
+		order.setIdempotencyKey(source.getIdempotencyKey());
+		if (source.getCustomer() != null) {
+			order.setCustomer(customer(source.getCustomer().getCustomerId()));
+		}
+
+		List<OrderDetail> orderDetails = new ArrayList<OrderDetail>(sourceDetails.size());
+		for (OrderDetail sourceDetail : sourceDetails) {
+			orderDetails.add(orderDetail(order, sourceDetail.getProduct().getProductId(), sourceDetail.getPrice(),
+					sourceDetail.getQuantity(), sourceDetail.getDiscount(), sourceDetail.getStatus(),
+					sourceDetail.getTotalPrice()));
+		}
+		return new OrderCommand(reference, order, orderDetails);
+	}
+
+	public void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(FORMAT_VERSION);
+		writeString(out, reference);
+		writeString(out, order.getCustomer() != null ? order.getCustomer().getCustomerId() : null);
+		writeString(out, order.getPhone());
+		writeDate(out, order.getOrderDate());
+		writeDate(out, order.getRequireDate());
+		writeString(out, order.getReceiver());
+		writeString(out, order.getAddress());
+		writeString(out, order.getDescription());
+		writeDouble(out, order.getAmount());
+		writeDouble(out, order.getTotalPrice());
+		writeString(out, order.getIdempotencyKey());
+		out.writeInt(orderDetails.size());
+		for (OrderDetail orderDetail : orderDetails) {
+			out.writeInt(orderDetail.getProduct().getProductId());
+			writeInteger(out, orderDetail.getQuantity());
+			writeDouble(out, orderDetail.getPrice());
+			writeDouble(out, orderDetail.getDiscount());
+			writeString(out, orderDetail.getStatus());
+			out.writeDouble(orderDetail.getTotalPrice());
+		}
+	}
+
+	public static OrderCommand readFrom(DataInputStream in) throws IOException {
+		int version = in.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Không hỗ trợ định dạng journal phiên bản " + version);
+		}
+		String reference = readString(in);
+		Order order = new Order();
+		String customerId = readString(in);
+		if (customerId != null) {
+			order.setCustomer(customer(customerId));
+		}
+		order.setPhone(readString(in));
+		order.setOrderDate(readDate(in));
+		order.setRequireDate(readDate(in));
+		order.setReceiver(readString(in));
+		order.setAddress(readString(in));
+		order.setDescription(readString(in));
+		order.setAmount(readDouble(in));
+		order.setTotalPrice(readDouble(in));
+		order.setIdempotencyKey(readString(in));
+		int lines = in.readInt();
+		List<OrderDetail> orderDetails = new ArrayList<OrderDetail>(lines);
+		for (int i = 0; i < lines; i++) {
+			int productId = in.readInt();
+			Integer quantity = readInteger(in);
+			Double price = readDouble(in);
+			Double discount = readDouble(in);
+			String status = readString(in);
+			orderDetails.add(orderDetail(order, productId, price, quantity, discount, status, in.readDouble()));
+		}
+		return new OrderCommand(reference, order, orderDetails);
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public Order getOrder() {
+		return order;
+	}
+
+	public List<OrderDetail> getOrderDetails() {
+		return orderDetails;
+	}
+
+	private static Customer customer(String customerId) {
+		Customer customer = new Customer();
+		customer.setCustomerId(customerId);
+		return customer;
+	}
+
+	private static OrderDetail orderDetail(Order order, Integer productId, Double price, Integer quantity,
+			Double discount, String status, double totalPrice) {
+		Product product = new Product();
+		product.setProductId(productId);
+		OrderDetail orderDetail = new OrderDetail();
+		orderDetail.setPrice(price);
+		orderDetail.setQuantity(quantity);
+		orderDetail.setDiscount(discount);
+		orderDetail.setStatus(status);
+		orderDetail.setTotalPrice(totalPrice);
+		orderDetail.setOrder(order);
+		orderDetail.setProduct(product);
+		return orderDetail;
+	}
+
+	// giá trị null ghi bằng một cờ đứng trước; chuỗi ghi độ dài + UTF-8 (writeUTF giới hạn 64KB)
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeDouble(value);
+		}
+	}
+
+	private static Double readDouble(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readDouble() : null;
+	}
+
+	private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeInt(value);
+		}
+	}
+
+	private static Integer readInteger(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readInt() : null;
+	}
+
+	private static void writeDate(DataOutputStream out, Date value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value.getTime());
+		}
+	}
+
+	private static Date readDate(DataInputStream in) throws IOException {
+		return in.readBoolean() ? new Date(in.readLong()) : null;
+	}
+}
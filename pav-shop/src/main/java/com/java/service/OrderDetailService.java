@@ -4,19 +4,70 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.java.entity.Order;
+import com.java.entity.OrderDetail;
+import com.java.repository.OrderDetailRepository;
 import com.java.repository.OrderRepository;
+import com.java.repository.SalesRollupRepository;
 
 @Service
 public class OrderDetailService {
 	
 	@Autowired
 	OrderRepository repo;
+
+	@Autowired
+	OrderDetailRepository orderDetailRepository;
+
+	@Autowired
+	SalesRollupRepository salesRollupRepository;
+
+	@Autowired
+	OrderLineColumnStore orderLineColumnStore;
 	
 	public List<Order> listAll(){
 		
 		return (List<Order>) repo.findAll();
 	}
 
+	// sửa order detail: trừ giá trị cũ khỏi bảng tổng hợp, lưu, cộng giá trị mới
+	@Transactional
+	public OrderDetail save(OrderDetail orderDetail) {
+		salesRollupRepository.lockShared();
+		if (orderDetail.getOrderDetailId() != null) {
+			salesRollupRepository.subtractOrderDetail(orderDetail.getOrderDetailId());
+		}
+		OrderDetail saved = orderDetailRepository.saveAndFlush(orderDetail);
+		salesRollupRepository.addOrderDetail(saved.getOrderDetailId());
+		afterCommit(() -> orderLineColumnStore.update(saved.getOrderDetailId(), saved.getQuantity(), saved.getPrice(),
+				saved.getTotalPrice()));
+		return saved;
+	}
+
+	@Transactional
+	public void delete(Integer orderDetailId) {
+		salesRollupRepository.lockShared();
+		salesRollupRepository.subtractOrderDetail(orderDetailId);
+		orderDetailRepository.deleteById(orderDetailId);
+		afterCommit(() -> orderLineColumnStore.remove(orderDetailId));
+	}
+
+	// kho cột trong bộ nhớ chỉ đổi khi giao dịch đã commit, rollback thì thống kê không lệch khỏi DB
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
 }
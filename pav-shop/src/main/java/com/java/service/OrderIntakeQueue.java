@@ -0,0 +1,370 @@
+package com.java.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.Order;
+import com.java.entity.OrderDetail;
+import com.java.entity.OrderIntakeStatus;
+import com.java.repository.OrderBatchRepository;
+import com.java.repository.OrderRepository;
+
+// Hàng đợi nhận đơn hàng bất đồng bộ (bật bằng pavshop.order.async-intake=true).
+// /checkOut chỉ ghi lệnh xuống journal trên đĩa rồi đưa vào hàng đợi có giới hạn và trả mã tham chiếu ngay;
+// các luồng ghi lấy từng lô lệnh ra và lưu bằng OrderBatchRepository.saveOrders.
+// Hàng đợi đầy -> từ chối (back-pressure), khách giữ nguyên giỏ hàng và thử lại.
+// Journal: mỗi lệnh là một file <reference>.order (bản ghi phẳng có phiên bản, xem OrderCommand.writeTo),
+// xoá khi đã lưu, còn sót lại thì được nạp lại lúc khởi động.
+@Service
+public class OrderIntakeQueue {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderIntakeQueue.class);
+
+	private static final String JOURNAL_SUFFIX = ".order";
+	private static final String FAILED_SUFFIX = ".failed";
+
+	// giữ trạng thái đơn đã xử lý xong trong 1 giờ cho khách poll
+	private static final long STATUS_TTL_MS = TimeUnit.HOURS.toMillis(1);
+	private static final long RETRY_DELAY_MS = 1000;
+
+	@Autowired
+	OrderBatchRepository orderBatchRepository;
+
+	@Autowired
+	OrderRepository orderRepository;
+
+	@Autowired
+	TrendingProducts trendingProducts;
+
+	@Autowired
+	StockReservationService stockReservationService;
+
+	@Value("${pavshop.order.async-intake:false}")
+	private boolean enabled;
+
+	@Value("${pavshop.order.queue-capacity:1000}")
+	private int capacity;
+
+	@Value("${pavshop.order.writer-threads:2}")
+	private int writerThreads;
+
+	@Value("${pavshop.order.batch-size:50}")
+	private int batchSize;
+
+	@Value("${pavshop.order.offer-timeout-ms:200}")
+	private long offerTimeoutMs;
+
+	@Value("${pavshop.order.journal-dir:order-journal}")
+	private String journalDir;
+
+	private BlockingQueue<OrderCommand> queue;
+
+	private Path journal;
+
+	private final Map<String, OrderIntakeStatus> statuses = new ConcurrentHashMap<String, OrderIntakeStatus>();
+
+	// đơn nhận trong lần chạy này: /checkOut đã commit phần giữ hàng ngay sau submit, đơn lỗi thì trả lại hàng.
+	// Đơn nạp lại từ journal của lần chạy trước không có trong đây (tồn kho đã nạp lại từ DB)
+	private final Set<String> stockCommitted = ConcurrentHashMap.newKeySet();
+
+	private final List<Thread> writers = new ArrayList<Thread>();
+
+	private volatile boolean running;
+
+	@PostConstruct
+	public void start() throws IOException {
+		if (!enabled) {
+			return;
+		}
+		journal = Paths.get(journalDir);
+		Files.createDirectories(journal);
+		queue = new ArrayBlockingQueue<OrderCommand>(capacity);
+		running = true;
+		for (int i = 0; i < writerThreads; i++) {
+			Thread writer = new Thread(this::drain, "order-writer-" + i);
+			writer.setDaemon(true);
+			writer.start();
+			writers.add(writer);
+		}
+		replay();
+	}
+
+	// dừng nhận, lệnh còn trong hàng đợi vẫn nằm trên journal và được nạp lại ở lần khởi động sau
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		for (Thread writer : writers) {
+			writer.interrupt();
+		}
+		for (Thread writer : writers) {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	// trả về mã tham chiếu, null nếu hàng đợi đầy hoặc không ghi được journal
+	public String submit(Order order, List<OrderDetail> orderDetails) {
+		String reference = UUID.randomUUID().toString();
+		OrderCommand command = OrderCommand.of(reference, order, orderDetails);
+		Path file = journalFile(reference, JOURNAL_SUFFIX);
+		try {
+			writeJournal(command, file);
+		} catch (IOException e) {
+			log.error("Không ghi được journal cho đơn hàng {}, từ chối đơn", reference, e);
+			return null;
+		}
+
+		statuses.put(reference, new OrderIntakeStatus(reference, OrderIntakeStatus.QUEUED, null, null, new Date()));
+		stockCommitted.add(reference);
+		boolean accepted;
+		try {
+			accepted = queue.offer(command, offerTimeoutMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			accepted = false;
+		}
+		if (!accepted) {
+			stockCommitted.remove(reference);
+			statuses.remove(reference);
+			deleteQuietly(file);
+			return null;
+		}
+		return reference;
+	}
+
+	public OrderIntakeStatus status(String reference) {
+		return statuses.get(reference);
+	}
+
+	public int size() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	@Scheduled(fixedDelay = 600000)
+	public void sweepStatuses() {
+		long expired = System.currentTimeMillis() - STATUS_TTL_MS;
+		statuses.values().removeIf(s -> !OrderIntakeStatus.QUEUED.equals(s.getStatus())
+				&& s.getUpdatedAt().getTime() < expired);
+	}
+
+	private void drain() {
+		List<OrderCommand> batch = new ArrayList<OrderCommand>(batchSize);
+		while (running) {
+			try {
+				OrderCommand first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				persist(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	// lưu cả lô trong một giao dịch, lỗi dữ liệu thì lưu lại từng đơn để cô lập đơn hỏng.
+	// Lỗi kết nối / tạm thời: chờ rồi thử lại, journal vẫn giữ nên không mất đơn.
+	private void persist(List<OrderCommand> batch) throws InterruptedException {
+		List<OrderCommand> pending = batch;
+		while (running) {
+			try {
+				saveAll(pending);
+				return;
+			} catch (RuntimeException e) {
+				if (isTransient(e)) {
+					Thread.sleep(RETRY_DELAY_MS);
+					continue;
+				}
+			}
+
+			List<OrderCommand> retry = new ArrayList<OrderCommand>();
+			for (OrderCommand command : pending) {
+				try {
+					orderBatchRepository.saveOrder(command.getOrder(), command.getOrderDetails());
+					saved(command, true);
+				} catch (DuplicateKeyException e) {
+					// cùng idempotency key đã được ghi (gửi trùng form) cho chính khách này: coi như đã lưu với orderId cũ
+					Order order = command.getOrder();
+					Integer orderId = order.getIdempotencyKey() == null || order.getCustomer() == null ? null
+							: orderRepository.findOrderIdByIdempotencyKeyAndCustomerId(order.getIdempotencyKey(),
+									order.getCustomer().getCustomerId()).orElse(null);
+					if (orderId == null && order.getIdempotencyKey() != null) {
+						// key thuộc đơn của khách khác: coi như key mới, lưu lại đơn không kèm key
+						order.setIdempotencyKey(null);
+						retry.add(command);
+						continue;
+					}
+					if (orderId == null) {
+						failed(command, e);
+						continue;
+					}
+					command.getOrder().setOrderId(orderId);
+					saved(command, false);
+				} catch (RuntimeException e) {
+					if (isTransient(e)) {
+						retry.add(command);
+					} else {
+						failed(command, e);
+					}
+				}
+			}
+			if (retry.isEmpty()) {
+				return;
+			}
+			pending = retry;
+			Thread.sleep(RETRY_DELAY_MS);
+		}
+	}
+
+	private void saveAll(List<OrderCommand> batch) {
+		List<Order> orders = new ArrayList<Order>(batch.size());
+		List<List<OrderDetail>> orderDetails = new ArrayList<List<OrderDetail>>(batch.size());
+		for (OrderCommand command : batch) {
+			orders.add(command.getOrder());
+			orderDetails.add(command.getOrderDetails());
+		}
+		orderBatchRepository.saveOrders(orders, orderDetails);
+		for (OrderCommand command : batch) {
+			saved(command, true);
+		}
+	}
+
+	// inserted = false: đơn đã có sẵn trong DB (gửi trùng), đã được tính vào sản phẩm thịnh hành lúc ghi lần đầu
+	private void saved(OrderCommand command, boolean inserted) {
+		stockCommitted.remove(command.getReference());
+		if (inserted) {
+			trendingProducts.record(command.getOrderDetails());
+		}
+		statuses.put(command.getReference(), new OrderIntakeStatus(command.getReference(), OrderIntakeStatus.SAVED,
+				command.getOrder().getOrderId(), null, new Date()));
+		deleteQuietly(journalFile(command.getReference(), JOURNAL_SUFFIX));
+	}
+
+	// đổi tên file journal để không bị nạp lại, vẫn giữ lại cho admin kiểm tra
+	private void failed(OrderCommand command, RuntimeException e) {
+		log.error("Không lưu được đơn hàng {}, journal chuyển sang {}{}", command.getReference(),
+				command.getReference(), FAILED_SUFFIX, e);
+		statuses.put(command.getReference(), new OrderIntakeStatus(command.getReference(), OrderIntakeStatus.FAILED,
+				null, "Không lưu được đơn hàng", new Date()));
+		if (stockCommitted.remove(command.getReference())) {
+			for (OrderDetail orderDetail : command.getOrderDetails()) {
+				if (orderDetail.getProduct() != null && orderDetail.getQuantity() != null) {
+					stockReservationService.cancel(orderDetail.getProduct().getProductId(), orderDetail.getQuantity());
+				}
+			}
+		}
+		try {
+			Files.move(journalFile(command.getReference(), JOURNAL_SUFFIX),
+					journalFile(command.getReference(), FAILED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException ex) {
+			log.error("Không đổi tên được journal của đơn hàng lỗi {}", command.getReference(), ex);
+		}
+	}
+
+	private static boolean isTransient(RuntimeException e) {
+		return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+				|| e instanceof DataAccessResourceFailureException;
+	}
+
+	// nạp lại các lệnh chưa được lưu từ lần chạy trước, cũ trước mới sau
+	private void replay() throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(journal, "*" + JOURNAL_SUFFIX)) {
+			for (Path file : stream) {
+				files.add(file);
+			}
+		}
+		files.sort((a, b) -> {
+			try {
+				return Files.getLastModifiedTime(a).compareTo(Files.getLastModifiedTime(b));
+			} catch (IOException e) {
+				return 0;
+			}
+		});
+		for (Path file : files) {
+			OrderCommand command;
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+				command = OrderCommand.readFrom(in);
+			} catch (IOException e) {
+				// file ghi dở (tắt máy giữa chừng) hoặc hỏng
+				log.error("Journal đơn hàng {} hỏng, không nạp lại được, chuyển sang {}{}", file.getFileName(),
+						file.getFileName(), FAILED_SUFFIX, e);
+				Files.move(file, file.resolveSibling(file.getFileName() + FAILED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+				continue;
+			}
+			statuses.put(command.getReference(),
+					new OrderIntakeStatus(command.getReference(), OrderIntakeStatus.QUEUED, null, null, new Date()));
+			try {
+				queue.put(command);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	// ghi ra file tạm, fsync rồi đổi tên để không bao giờ thấy một lệnh ghi dở
+	private void writeJournal(OrderCommand command, Path file) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+			command.writeTo(out);
+			out.flush();
+			fos.getFD().sync();
+		}
+		Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Path journalFile(String reference, String suffix) {
+		return journal.resolve(reference + suffix);
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("Không xoá được journal {}", file.getFileName(), e);
+		}
+	}
+}
@@ -0,0 +1,641 @@
+package com.java.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.BrandMenuItem;
+import com.java.entity.CategoryMenuItem;
+import com.java.repository.ProductRepository;
+
+// Kho cột (columnar) trong bộ nhớ cho thống kê tuỳ chọn: mỗi order detail là một vị trí trong các mảng nguyên thuỷ
+// (productId, categoryId, brandId, khách hàng, ngày đặt, số lượng, giá, thành tiền).
+// Nạp toàn bộ lần đầu rồi đọc thêm các dòng mới theo orderDetailId mỗi pavshop.report.columnar-refresh-ms,
+// nên nhận cả đơn ghi trực tiếp lẫn đơn đi qua hàng đợi mà không cần móc vào luồng ghi.
+// aggregate() gộp SUM / AVG / MIN / MAX theo tối đa hai trường (chiều / mốc thời gian) song song trên ForkJoinPool,
+// không truy vấn MySQL.
+@Service
+public class OrderLineColumnStore {
+
+	public static final String NONE = "none";
+	public static final List<String> DIMENSIONS = Arrays.asList(NONE, "product", "category", "brand", "customer");
+	public static final List<String> BUCKETS = Arrays.asList(NONE, "day", "month", "quarter", "year");
+	public static final List<String> MEASURES = Arrays.asList("totalPrice", "price", "quantity");
+	// các trường gộp được: chiều và mốc thời gian
+	public static final List<String> FIELDS = Arrays.asList("product", "category", "brand", "customer", "day", "month",
+			"quarter", "year");
+
+	private static final String SELECT_LINES = "SELECT o.orderDetailId, o.productId, p.categoryId, p.brandId, od.customerId, "
+			+ "od.orderDate, o.quantity, o.price, o.total_price FROM orderdetails o "
+			+ "INNER JOIN orders od ON o.orderId = od.orderId "
+			+ "LEFT JOIN products p ON o.productId = p.productId "
+			+ "WHERE o.orderDetailId > ? ORDER BY o.orderDetailId";
+
+	// id tự tăng có thể commit không theo thứ tự: mỗi lần đọc lùi lại chừng này id, bỏ qua các dòng đã có.
+	// Giới hạn: dòng commit sau khi đã có dòng id lớn hơn nó quá TAIL_MARGIN được đọc (giao dịch ghi đơn treo lâu
+	// trong lúc các đơn khác vẫn ghi) sẽ không bao giờ được đọc thêm, chỉ có lại sau khi khởi động lại (nạp toàn bộ)
+	private static final int TAIL_MARGIN = 1000;
+
+	private static final int NO_DAY = Integer.MIN_VALUE;
+
+	// số dòng mỗi đoạn gộp song song
+	private static final int CHUNK = 1 << 16;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	CatalogMenuCache catalogMenuCache;
+
+	@Value("${pavshop.report.parallelism:0}")
+	private int parallelism;
+
+	private ForkJoinPool pool;
+
+	// JdbcTemplate riêng đọc dạng stream (MySQL Connector/J: fetchSize = Integer.MIN_VALUE)
+	// để lần nạp đầu không giữ cả kết quả trong bộ nhớ driver
+	private JdbcTemplate streamingTemplate;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int[] orderDetailIds = new int[1024];
+	private int[] productIds = new int[1024];
+	private int[] categoryIds = new int[1024];
+	private int[] brandIds = new int[1024];
+	private int[] customers = new int[1024];
+	private int[] days = new int[1024];
+	private int[] quantities = new int[1024];
+	private double[] prices = new double[1024];
+	private double[] totalPrices = new double[1024];
+	private final BitSet deleted = new BitSet();
+	private int size;
+
+	// orderDetailId -> vị trí
+	private final LongIntMap rowById = new LongIntMap();
+
+	// từ điển khách hàng: customerId <-> số thứ tự
+	private final Map<String, Integer> customerIndex = new HashMap<String, Integer>();
+	private final List<String> customerIds = new ArrayList<String>();
+
+	private int lastId;
+
+	// khoảng ngày đặt hàng đang có, để dựng bảng ngày -> mốc thời gian
+	private int minDay = Integer.MAX_VALUE;
+	private int maxDay = Integer.MIN_VALUE;
+
+	private volatile boolean loaded;
+
+	@PostConstruct
+	public void init() {
+		streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+		streamingTemplate.setFetchSize(Integer.MIN_VALUE);
+		// pool riêng, không tranh luồng với commonPool của phần còn lại của ứng dụng
+		pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	// đọc thêm các dòng có orderDetailId > lastId - TAIL_MARGIN (xem giới hạn ở TAIL_MARGIN)
+	@Scheduled(fixedDelayString = "${pavshop.report.columnar-refresh-ms:5000}")
+	public void refresh() {
+		int from = loaded ? Math.max(0, lastId - TAIL_MARGIN) : 0;
+		streamingTemplate.query(SELECT_LINES, (RowCallbackHandler) rs -> {
+			int orderDetailId = rs.getInt(1);
+			java.sql.Date orderDate = rs.getDate(6);
+			append(orderDetailId, rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getString(5),
+					orderDate == null ? NO_DAY : (int) orderDate.toLocalDate().toEpochDay(), rs.getInt(7), rs.getDouble(8),
+					rs.getDouble(9));
+		}, from);
+		loaded = true;
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size - deleted.cardinality();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// admin sửa order detail
+	public void update(Integer orderDetailId, Integer quantity, Double price, double totalPrice) {
+		lock.writeLock().lock();
+		try {
+			int row = rowById.get(orderDetailId);
+			if (row >= 0) {
+				quantities[row] = quantity != null ? quantity : 0;
+				prices[row] = price != null ? price : 0;
+				totalPrices[row] = totalPrice;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// admin xoá order detail
+	public void remove(Integer orderDetailId) {
+		lock.writeLock().lock();
+		try {
+			int row = rowById.get(orderDetailId);
+			if (row >= 0) {
+				deleted.set(row);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// admin đổi thể loại / nhãn hiệu của sản phẩm: các dòng cũ theo thể loại / nhãn hiệu mới (như báo cáo SQL)
+	public void reassign(Integer productId, Integer categoryId, Integer brandId) {
+		lock.writeLock().lock();
+		try {
+			int category = categoryId != null ? categoryId : 0;
+			int brand = brandId != null ? brandId : 0;
+			for (int i = 0; i < size; i++) {
+				if (productIds[i] == productId) {
+					categoryIds[i] = category;
+					brandIds[i] = brand;
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// gộp theo một chiều và một mốc thời gian (thống kê tuỳ chọn)
+	public List<Object[]> aggregate(String dimension, String bucket, String measure) {
+		List<String> fields = new ArrayList<String>(2);
+		if (!NONE.equals(dimension)) {
+			fields.add(dimension);
+		}
+		if (!NONE.equals(bucket)) {
+			fields.add(bucket);
+		}
+		return aggregate(fields, measure, null, null);
+	}
+
+	// gộp theo tối đa hai trường bất kỳ trong FIELDS (vd brand x quarter, category x customer):
+	// dữ liệu được chia thành từng đoạn CHUNK dòng, các đoạn được gộp song song trên ForkJoinPool
+	// thành các kết quả riêng rồi hợp lại. Mỗi dòng kết quả là
+	// nhãn, SUM(quantity), SUM(measure), AVG(measure), MIN(measure), MAX(measure).
+	// from / to (null = không giới hạn): chỉ gộp các dòng có ngày đặt hàng trong [from, to)
+	public List<Object[]> aggregate(List<String> fields, String measure, LocalDate from, LocalDate to) {
+		if (fields.size() > 2 || !FIELDS.containsAll(fields)) {
+			throw new IllegalArgumentException("fields: " + fields);
+		}
+		Partial result;
+		lock.readLock().lock();
+		try {
+			// các luồng của pool chỉ đọc, luồng gọi giữ read lock tới khi gộp xong nên không có ghi chen vào
+			Columns columns = new Columns(fields, measure, from, to);
+			result = pool.invoke(new AggregateTask(columns, 0, size));
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		List<Map<Integer, String>> names = new ArrayList<Map<Integer, String>>(fields.size());
+		for (String field : fields) {
+			names.add(dimensionNames(field));
+		}
+		Integer[] order = new Integer[result.size];
+		for (int g = 0; g < order.length; g++) {
+			order[g] = g;
+		}
+		// theo trường thứ nhất rồi trường thứ hai
+		long[] keys = result.keys;
+		Arrays.sort(order, Comparator.<Integer>comparingInt(g -> (int) (keys[g] >> 32))
+				.thenComparingInt(g -> (int) keys[g]));
+		List<Object[]> rows = new ArrayList<Object[]>(result.size);
+		for (int g : order) {
+			StringBuilder label = new StringBuilder();
+			for (int f = 0; f < fields.size(); f++) {
+				int code = f == 0 ? (int) (keys[g] >> 32) : (int) keys[g];
+				if (label.length() > 0) {
+					label.append(" / ");
+				}
+				label.append(label(fields.get(f), code, names.get(f)));
+			}
+			rows.add(new Object[] { label.length() > 0 ? label.toString() : "Tất cả", result.quantity[g], result.sum[g],
+					result.sum[g] / result.count[g], result.min[g], result.max[g] });
+		}
+		return rows;
+	}
+
+	private void append(int orderDetailId, int productId, int categoryId, int brandId, String customerId, int day,
+			int quantity, double price, double totalPrice) {
+		lock.writeLock().lock();
+		try {
+			if (rowById.get(orderDetailId) >= 0) {
+				return;
+			}
+			if (size == orderDetailIds.length) {
+				grow(size * 2);
+			}
+			int row = size++;
+			orderDetailIds[row] = orderDetailId;
+			productIds[row] = productId;
+			categoryIds[row] = categoryId;
+			brandIds[row] = brandId;
+			customers[row] = customer(customerId);
+			days[row] = day;
+			if (day != NO_DAY) {
+				minDay = Math.min(minDay, day);
+				maxDay = Math.max(maxDay, day);
+			}
+			quantities[row] = quantity;
+			prices[row] = price;
+			totalPrices[row] = totalPrice;
+			rowById.put(orderDetailId, row);
+			lastId = Math.max(lastId, orderDetailId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private int customer(String customerId) {
+		if (customerId == null) {
+			return -1;
+		}
+		Integer index = customerIndex.get(customerId);
+		if (index == null) {
+			index = customerIds.size();
+			customerIndex.put(customerId, index);
+			customerIds.add(customerId);
+		}
+		return index;
+	}
+
+	private void grow(int capacity) {
+		orderDetailIds = Arrays.copyOf(orderDetailIds, capacity);
+		productIds = Arrays.copyOf(productIds, capacity);
+		categoryIds = Arrays.copyOf(categoryIds, capacity);
+		brandIds = Arrays.copyOf(brandIds, capacity);
+		customers = Arrays.copyOf(customers, capacity);
+		days = Arrays.copyOf(days, capacity);
+		quantities = Arrays.copyOf(quantities, capacity);
+		prices = Arrays.copyOf(prices, capacity);
+		totalPrices = Arrays.copyOf(totalPrices, capacity);
+	}
+
+	private int[] dimensionColumn(String field) {
+		switch (field) {
+		case "product":
+			return productIds;
+		case "category":
+			return categoryIds;
+		case "brand":
+			return brandIds;
+		case "customer":
+			return customers;
+		default:
+			return null;
+		}
+	}
+
+	// mã mốc thời gian cho mọi ngày trong [minDay, maxDay], tính một lần cho mỗi truy vấn
+	private int[] bucketByDay(String bucket) {
+		if (minDay > maxDay) {
+			return new int[0];
+		}
+		int[] codes = new int[maxDay - minDay + 1];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = bucketOf(bucket, minDay + i);
+		}
+		return codes;
+	}
+
+	private static int bucketOf(String bucket, int day) {
+		if ("day".equals(bucket)) {
+			return day;
+		}
+		LocalDate date = LocalDate.ofEpochDay(day);
+		switch (bucket) {
+		case "month":
+			return date.getYear() * 100 + date.getMonthValue();
+		case "quarter":
+			return date.getYear() * 10 + (date.getMonthValue() + 2) / 3;
+		default:
+			return date.getYear();
+		}
+	}
+
+	private static String bucketLabel(String bucket, int code) {
+		if (code == NO_DAY) {
+			return "-";
+		}
+		switch (bucket) {
+		case "day":
+			return LocalDate.ofEpochDay(code).toString();
+		case "month":
+			return String.format("%d-%02d", code / 100, code % 100);
+		case "quarter":
+			return code / 10 + "-Q" + code % 10;
+		default:
+			return String.valueOf(code);
+		}
+	}
+
+	private Map<Integer, String> dimensionNames(String dimension) {
+		Map<Integer, String> names = new HashMap<Integer, String>();
+		switch (dimension) {
+		case "product":
+			for (Object[] row : productRepository.listProductName()) {
+				names.put((Integer) row[0], (String) row[1]);
+			}
+			break;
+		case "category":
+			for (CategoryMenuItem category : catalogMenuCache.categories()) {
+				names.put(category.getCategoryId(), category.getCategoryName());
+			}
+			break;
+		case "brand":
+			for (BrandMenuItem brand : catalogMenuCache.brands()) {
+				names.put(brand.getBrandId(), brand.getBrandName());
+			}
+			break;
+		case "customer":
+			lock.readLock().lock();
+			try {
+				for (int i = 0; i < customerIds.size(); i++) {
+					names.put(i, customerIds.get(i));
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			break;
+		default:
+			break;
+		}
+		return names;
+	}
+
+	private static String label(String field, int code, Map<Integer, String> names) {
+		if (BUCKETS.contains(field)) {
+			return bucketLabel(field, code);
+		}
+		String name = names.get(code);
+		return name != null ? name : code > 0 ? "#" + code : "-";
+	}
+
+	// bảng băm long -> int địa chỉ mở, không đóng hộp; giá trị >= 0, get trả -1 nếu không có
+	private static final class LongIntMap {
+
+		long[] keys = new long[64];
+		int[] values = new int[64];
+		boolean[] used = new boolean[64];
+		int size;
+
+		int get(long key) {
+			int mask = keys.length - 1;
+			for (int slot = hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+				if (keys[slot] == key) {
+					return values[slot];
+				}
+			}
+			return -1;
+		}
+
+		void put(long key, int value) {
+			if ((size + 1) * 2 > keys.length) {
+				rehash(keys.length * 2);
+			}
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+			while (used[slot]) {
+				if (keys[slot] == key) {
+					values[slot] = value;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			used[slot] = true;
+			keys[slot] = key;
+			values[slot] = value;
+			size++;
+		}
+
+		private void rehash(int capacity) {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			boolean[] oldUsed = used;
+			keys = new long[capacity];
+			values = new int[capacity];
+			used = new boolean[capacity];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldUsed[i]) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+
+		private static int hash(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+
+	// tham chiếu tới các cột cần cho một truy vấn (không sao chép), chỉ đọc từ các luồng của pool
+	private final class Columns {
+
+		final int[][] values;
+		// bảng ngày -> mốc thời gian cho trường thời gian, null với trường là chiều
+		final int[][] lookups;
+		final int offset = minDay;
+		final int[] quantities = OrderLineColumnStore.this.quantities;
+		final double[] measure;
+		final BitSet deleted = OrderLineColumnStore.this.deleted;
+		final int[] days = OrderLineColumnStore.this.days;
+		// khoảng ngày [fromDay, toDay), ranged = false thì không lọc
+		final boolean ranged;
+		final long fromDay;
+		final long toDay;
+
+		Columns(List<String> fields, String measure, LocalDate from, LocalDate to) {
+			values = new int[fields.size()][];
+			lookups = new int[fields.size()][];
+			for (int f = 0; f < fields.size(); f++) {
+				int[] column = dimensionColumn(fields.get(f));
+				values[f] = column != null ? column : days;
+				lookups[f] = column != null ? null : bucketByDay(fields.get(f));
+			}
+			this.measure = "quantity".equals(measure) ? null : "price".equals(measure) ? prices : totalPrices;
+			this.ranged = from != null || to != null;
+			this.fromDay = from != null ? from.toEpochDay() : Long.MIN_VALUE;
+			this.toDay = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+		}
+
+		// dòng đã xoá, hoặc nằm ngoài khoảng ngày (dòng không có ngày bị loại khi có khoảng)
+		boolean skip(int row) {
+			if (deleted.get(row)) {
+				return true;
+			}
+			if (!ranged) {
+				return false;
+			}
+			int day = days[row];
+			return day == NO_DAY || day < fromDay || day >= toDay;
+		}
+
+		int code(int f, int row) {
+			int value = values[f][row];
+			int[] lookup = lookups[f];
+			return lookup == null || value == NO_DAY ? value : lookup[value - offset];
+		}
+
+		// trường thứ nhất ở 32 bit cao, trường thứ hai ở 32 bit thấp
+		long key(int row) {
+			long key = 0;
+			if (values.length > 0) {
+				key = (long) code(0, row) << 32;
+			}
+			if (values.length > 1) {
+				key |= code(1, row) & 0xffffffffL;
+			}
+			return key;
+		}
+
+		double value(int row) {
+			return measure == null ? quantities[row] : measure[row];
+		}
+	}
+
+	// gộp đoạn [from, to): chia đôi tới khi còn không quá CHUNK dòng, hai nửa chạy song song rồi hợp kết quả
+	private static final class AggregateTask extends RecursiveTask<Partial> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Columns columns;
+		private final int from;
+		private final int to;
+
+		AggregateTask(Columns columns, int from, int to) {
+			this.columns = columns;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Partial compute() {
+			if (to - from <= CHUNK) {
+				return leaf();
+			}
+			int mid = (from + to) >>> 1;
+			AggregateTask left = new AggregateTask(columns, from, mid);
+			left.fork();
+			Partial right = new AggregateTask(columns, mid, to).compute();
+			return left.join().merge(right);
+		}
+
+		// lượt 1 gán số nhóm cho từng dòng, các lượt sau cộng dồn theo từng cột
+		private Partial leaf() {
+			Partial partial = new Partial();
+			int[] groupOf = new int[to - from];
+			for (int i = from; i < to; i++) {
+				groupOf[i - from] = columns.skip(i) ? -1 : partial.group(columns.key(i));
+			}
+			for (int i = from; i < to; i++) {
+				int g = groupOf[i - from];
+				if (g >= 0) {
+					partial.count[g]++;
+					partial.quantity[g] += columns.quantities[i];
+				}
+			}
+			for (int i = from; i < to; i++) {
+				int g = groupOf[i - from];
+				if (g >= 0) {
+					double value = columns.value(i);
+					partial.sum[g] += value;
+					if (value < partial.min[g]) {
+						partial.min[g] = value;
+					}
+					if (value > partial.max[g]) {
+						partial.max[g] = value;
+					}
+				}
+			}
+			return partial;
+		}
+	}
+
+	// kết quả gộp của một đoạn: khoá nhóm -> COUNT, SUM(quantity), SUM / MIN / MAX(measure)
+	private static final class Partial {
+
+		final LongIntMap index = new LongIntMap();
+		long[] keys = new long[16];
+		long[] count = new long[16];
+		long[] quantity = new long[16];
+		double[] sum = new double[16];
+		double[] min = new double[16];
+		double[] max = new double[16];
+		int size;
+
+		int group(long key) {
+			int g = index.get(key);
+			if (g >= 0) {
+				return g;
+			}
+			if (size == keys.length) {
+				int capacity = size * 2;
+				keys = Arrays.copyOf(keys, capacity);
+				count = Arrays.copyOf(count, capacity);
+				quantity = Arrays.copyOf(quantity, capacity);
+				sum = Arrays.copyOf(sum, capacity);
+				min = Arrays.copyOf(min, capacity);
+				max = Arrays.copyOf(max, capacity);
+			}
+			g = size++;
+			keys[g] = key;
+			min[g] = Double.POSITIVE_INFINITY;
+			max[g] = Double.NEGATIVE_INFINITY;
+			index.put(key, g);
+			return g;
+		}
+
+		// hợp phần nhỏ hơn vào phần lớn hơn
+		Partial merge(Partial other) {
+			if (other.size > size) {
+				return other.merge(this);
+			}
+			for (int o = 0; o < other.size; o++) {
+				int g = group(other.keys[o]);
+				count[g] += other.count[o];
+				quantity[g] += other.quantity[o];
+				sum[g] += other.sum[o];
+				min[g] = Math.min(min[g], other.min[o]);
+				max[g] = Math.max(max[g], other.max[o]);
+			}
+			return this;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.java.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.java.entity.Product;
+
+// Con trỏ phân trang keyset: mã hoá (enteredDate, productId) của sản phẩm cuối trang
+// thành chuỗi base64 an toàn cho URL, trang sau sẽ tìm thẳng tới vị trí này thay vì OFFSET
+public final class ProductCursor {
+
+	// null = sản phẩm chưa có ngày nhập (MySQL xếp các dòng này cuối cùng khi DESC)
+	private final Date enteredDate;
+	private final int productId;
+
+	public ProductCursor(Date enteredDate, int productId) {
+		this.enteredDate = enteredDate;
+		this.productId = productId;
+	}
+
+	public static ProductCursor of(Product product) {
+		return new ProductCursor(product.getEnteredDate(), product.getProductId());
+	}
+
+	public Date getEnteredDate() {
+		return enteredDate;
+	}
+
+	public int getProductId() {
+		return productId;
+	}
+
+	public String encode() {
+		String date = enteredDate == null ? "" : new java.sql.Date(enteredDate.getTime()).toString();
+		String raw = date + "|" + productId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// trả về null nếu token không hợp lệ -> quay về trang đầu
+	public static ProductCursor decode(String token) {
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int sep = raw.indexOf('|');
+			if (sep < 0) {
+				return null;
+			}
+			String date = raw.substring(0, sep);
+			int productId = Integer.parseInt(raw.substring(sep + 1));
+			return new ProductCursor(date.isEmpty() ? null : java.sql.Date.valueOf(date), productId);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
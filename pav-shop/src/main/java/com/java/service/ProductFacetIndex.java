@@ -0,0 +1,448 @@
+package com.java.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.BrandMenuItem;
+import com.java.entity.CategoryMenuItem;
+import com.java.entity.Product;
+import com.java.entity.ProductFacets;
+import com.java.repository.BrandRepository;
+import com.java.repository.CategoryRepository;
+import com.java.repository.ProductRepository;
+
+// Bộ đếm facet cho sidebar (thể loại, nhãn hiệu, khoảng giá, mức giảm giá) và bộ lọc nhiều thuộc tính.
+// Mỗi sản phẩm được gán một số thứ tự liên tục (doc), mỗi giá trị facet giữ một BitSet các doc,
+// số lượng của một tập kết quả = cardinality(kết quả AND facet), lọc = AND / OR các BitSet,
+// không cần GROUP BY hay truy vấn nào dưới MySQL.
+@Service
+public class ProductFacetIndex {
+
+	// cận trên (không bao gồm) của từng khoảng giá, khoảng cuối không giới hạn
+	static final double[] PRICE_BOUNDS = { 50, 100, 200, 500 };
+	static final String[] PRICE_LABELS = { "Dưới $50", "$50 - $100", "$100 - $200", "$200 - $500", "Từ $500" };
+
+	static final double[] DISCOUNT_BOUNDS = { 1, 20, 40, 60 };
+	static final String[] DISCOUNT_LABELS = { "Không giảm giá", "1 - 19%", "20 - 39%", "40 - 59%", "Từ 60%" };
+
+	static final int OUT_OF_STOCK = 0;
+	static final int IN_STOCK = 1;
+
+	private static final int NONE = -1;
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	CategoryRepository categoryRepository;
+
+	@Autowired
+	BrandRepository brandRepository;
+
+	final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// productId <-> doc
+	final Map<Integer, Integer> docs = new HashMap<Integer, Integer>();
+	int[] productIds = new int[0];
+	int docCount;
+	final BitSet live = new BitSet();
+
+	// giá trị của từng doc, để gỡ doc khỏi các BitSet cũ khi cập nhật
+	int[] docCategory = new int[0];
+	int[] docBrand = new int[0];
+	double[] docPrice = new double[0];
+	double[] docDiscount = new double[0];
+	int[] docQuantity = new int[0];
+
+	final Map<Integer, BitSet> byCategory = new HashMap<Integer, BitSet>();
+	final Map<Integer, BitSet> byBrand = new HashMap<Integer, BitSet>();
+	final BitSet[] byPrice = newBitSets(PRICE_LABELS.length);
+	final BitSet[] byDiscount = newBitSets(DISCOUNT_LABELS.length);
+	final BitSet[] byStock = newBitSets(2);
+
+	private volatile Map<Integer, String> categoryNames = new HashMap<Integer, String>();
+	private volatile Map<Integer, String> brandNames = new HashMap<Integer, String>();
+
+	// facet của toàn bộ catalog, tính lại khi có sản phẩm thay đổi. Chỉ bỏ trong write lock và chỉ ghi trong
+	// read lock (ngay sau khi tính), nên một kết quả tính trước lần bỏ không thể được ghi đè lên sau đó
+	private volatile ProductFacets allFacets;
+
+	@PostConstruct
+	public void rebuild() {
+		List<Object[]> rows = productRepository.listProductAttributes();
+		refreshNames();
+		lock.writeLock().lock();
+		try {
+			docs.clear();
+			docCount = 0;
+			live.clear();
+			byCategory.clear();
+			byBrand.clear();
+			for (BitSet bits : byPrice) {
+				bits.clear();
+			}
+			for (BitSet bits : byDiscount) {
+				bits.clear();
+			}
+			for (BitSet bits : byStock) {
+				bits.clear();
+			}
+			for (Object[] row : rows) {
+				put((Integer) row[0], (Integer) row[1], (Integer) row[2], (Double) row[3], (Double) row[4],
+						(Integer) row[5]);
+			}
+			allFacets = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// nạp lại tên thể loại / nhãn hiệu (khi đổi tên hoặc thêm mới)
+	public void refreshNames() {
+		Map<Integer, String> categories = new HashMap<Integer, String>();
+		for (CategoryMenuItem item : categoryRepository.listCategoryMenu()) {
+			categories.put(item.getCategoryId(), item.getCategoryName());
+		}
+		Map<Integer, String> brands = new HashMap<Integer, String>();
+		for (BrandMenuItem item : brandRepository.listBrandMenu()) {
+			brands.put(item.getBrandId(), item.getBrandName());
+		}
+		lock.writeLock().lock();
+		try {
+			categoryNames = categories;
+			brandNames = brands;
+			allFacets = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void index(Product product) {
+		Integer categoryId = product.getCategory() == null ? null : product.getCategory().getCategoryId();
+		Integer brandId = product.getBrand() == null ? null : product.getBrand().getBrandId();
+		lock.writeLock().lock();
+		try {
+			put(product.getProductId(), categoryId, brandId, product.getPrice(), product.getDiscount(),
+					product.getQuantity());
+			allFacets = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		// thể loại / nhãn hiệu chưa có tên trong bộ nhớ
+		if ((categoryId != null && !categoryNames.containsKey(categoryId))
+				|| (brandId != null && !brandNames.containsKey(brandId))) {
+			refreshNames();
+		}
+	}
+
+	public void remove(Integer productId) {
+		lock.writeLock().lock();
+		try {
+			Integer doc = docs.get(productId);
+			if (doc != null) {
+				unset(doc);
+				live.clear(doc);
+			}
+			allFacets = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// tồn kho còn giữ được của sản phẩm vừa chuyển giữa 0 và khác 0 (StockReservationService), đọc số lượng
+	// ngay trong write lock nên các lần báo chen nhau vẫn kết thúc ở giá trị mới nhất
+	public void updateStock(Integer productId, Supplier<Integer> quantity) {
+		lock.writeLock().lock();
+		try {
+			Integer doc = docs.get(productId);
+			if (doc == null || !live.get(doc)) {
+				return;
+			}
+			Integer current = quantity.get();
+			byStock[stockBucket(docQuantity[doc])].clear(doc);
+			docQuantity[doc] = current == null ? NONE : current;
+			byStock[stockBucket(docQuantity[doc])].set(doc);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// tập doc của một danh sách productId (ví dụ kết quả tìm kiếm)
+	public BitSet docsOf(Collection<Integer> ids) {
+		BitSet selection = new BitSet();
+		lock.readLock().lock();
+		try {
+			for (Integer id : ids) {
+				Integer doc = docs.get(id);
+				if (doc != null && live.get(doc)) {
+					selection.set(doc);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return selection;
+	}
+
+	// facet của toàn catalog
+	public ProductFacets facets() {
+		ProductFacets facets = allFacets;
+		if (facets != null) {
+			return facets;
+		}
+		lock.readLock().lock();
+		try {
+			facets = facets(null);
+			allFacets = facets;
+			return facets;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// facet của một tập kết quả, selection = null nghĩa là toàn bộ catalog
+	public ProductFacets facets(BitSet selection) {
+		lock.readLock().lock();
+		try {
+			Map<Integer, String> categories = categoryNames;
+			Map<Integer, String> brands = brandNames;
+			BitSet base = (BitSet) live.clone();
+			if (selection != null) {
+				base.and(selection);
+			}
+			return new ProductFacets(base.cardinality(), count(byCategory, categories, base),
+					count(byBrand, brands, base), count(byPrice, PRICE_LABELS, base),
+					count(byDiscount, DISCOUNT_LABELS, base));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	static int priceBucket(double price) {
+		return bucket(price, PRICE_BOUNDS);
+	}
+
+	static int discountBucket(double discount) {
+		return bucket(discount, DISCOUNT_BOUNDS);
+	}
+
+	// chưa khai báo số lượng (null) thì coi như còn hàng
+	static int stockBucket(int quantity) {
+		return quantity == NONE || quantity > 0 ? IN_STOCK : OUT_OF_STOCK;
+	}
+
+	// lọc nhiều thuộc tính: OR trong từng nhóm, AND giữa các nhóm
+	public BitSet filter(ProductFilter filter) {
+		lock.readLock().lock();
+		try {
+			BitSet result = (BitSet) live.clone();
+			if (!filter.getCategoryIds().isEmpty()) {
+				result.and(union(byCategory, filter.getCategoryIds()));
+			}
+			if (!filter.getBrandIds().isEmpty()) {
+				result.and(union(byBrand, filter.getBrandIds()));
+			}
+			if (!filter.getPriceBands().isEmpty()) {
+				result.and(union(byPrice, filter.getPriceBands()));
+			}
+			if (!filter.getDiscountBands().isEmpty()) {
+				result.and(union(byDiscount, filter.getDiscountBands()));
+			}
+			if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+				result.and(priceRange(filter.getMinPrice(), filter.getMaxPrice()));
+			}
+			if (filter.isOnSale()) {
+				result.andNot(byDiscount[0]);
+			}
+			if (filter.isInStock()) {
+				result.and(byStock[IN_STOCK]);
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// productId của một tập doc, mới nhất (id lớn) trước
+	public List<Integer> productIdsOf(BitSet selection) {
+		List<Integer> ids = new ArrayList<Integer>(selection.cardinality());
+		lock.readLock().lock();
+		try {
+			for (int doc = selection.nextSetBit(0); doc >= 0; doc = selection.nextSetBit(doc + 1)) {
+				if (doc < docCount) {
+					ids.add(productIds[doc]);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		ids.sort(Collections.reverseOrder());
+		return ids;
+	}
+
+	// khoảng giá tuỳ ý: lấy các khoảng giá giao với [min, max], chỉ kiểm tra từng doc ở hai khoảng biên
+	private BitSet priceRange(Double min, Double max) {
+		double low = min == null ? Double.NEGATIVE_INFINITY : min;
+		double high = max == null ? Double.POSITIVE_INFINITY : max;
+		int first = min == null ? 0 : priceBucket(low);
+		int last = max == null ? byPrice.length - 1 : priceBucket(high);
+		BitSet result = new BitSet();
+		for (int band = first; band <= last; band++) {
+			if (band == first || band == last) {
+				BitSet bits = byPrice[band];
+				for (int doc = bits.nextSetBit(0); doc >= 0; doc = bits.nextSetBit(doc + 1)) {
+					if (docPrice[doc] >= low && docPrice[doc] <= high) {
+						result.set(doc);
+					}
+				}
+			} else {
+				result.or(byPrice[band]);
+			}
+		}
+		return result;
+	}
+
+	private static BitSet union(Map<Integer, BitSet> facet, List<Integer> keys) {
+		BitSet result = new BitSet();
+		for (Integer key : keys) {
+			BitSet bits = facet.get(key);
+			if (bits != null) {
+				result.or(bits);
+			}
+		}
+		return result;
+	}
+
+	private static BitSet union(BitSet[] facet, List<Integer> keys) {
+		BitSet result = new BitSet();
+		for (Integer key : keys) {
+			if (key != null && key >= 0 && key < facet.length) {
+				result.or(facet[key]);
+			}
+		}
+		return result;
+	}
+
+	private static int bucket(double value, double[] bounds) {
+		int i = 0;
+		while (i < bounds.length && value >= bounds[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	private void put(Integer productId, Integer categoryId, Integer brandId, Double price, Double discount,
+			Integer quantity) {
+		if (productId == null) {
+			return;
+		}
+		Integer doc = docs.get(productId);
+		if (doc == null) {
+			doc = docCount++;
+			docs.put(productId, doc);
+			ensureCapacity(docCount);
+			productIds[doc] = productId;
+		} else {
+			unset(doc);
+		}
+
+		docCategory[doc] = categoryId == null ? NONE : categoryId;
+		docBrand[doc] = brandId == null ? NONE : brandId;
+		docPrice[doc] = price == null ? 0 : price;
+		docDiscount[doc] = discount == null ? 0 : discount;
+		docQuantity[doc] = quantity == null ? NONE : quantity;
+
+		live.set(doc);
+		if (categoryId != null) {
+			byCategory.computeIfAbsent(categoryId, k -> new BitSet()).set(doc);
+		}
+		if (brandId != null) {
+			byBrand.computeIfAbsent(brandId, k -> new BitSet()).set(doc);
+		}
+		byPrice[priceBucket(docPrice[doc])].set(doc);
+		byDiscount[discountBucket(docDiscount[doc])].set(doc);
+		byStock[stockBucket(docQuantity[doc])].set(doc);
+	}
+
+	// gỡ doc khỏi mọi BitSet facet theo giá trị cũ
+	void unset(int doc) {
+		if (docCategory[doc] != NONE) {
+			BitSet bits = byCategory.get(docCategory[doc]);
+			if (bits != null) {
+				bits.clear(doc);
+			}
+		}
+		if (docBrand[doc] != NONE) {
+			BitSet bits = byBrand.get(docBrand[doc]);
+			if (bits != null) {
+				bits.clear(doc);
+			}
+		}
+		byPrice[priceBucket(docPrice[doc])].clear(doc);
+		byDiscount[discountBucket(docDiscount[doc])].clear(doc);
+		byStock[stockBucket(docQuantity[doc])].clear(doc);
+	}
+
+	private void ensureCapacity(int size) {
+		if (productIds.length >= size) {
+			return;
+		}
+		int capacity = Math.max(size, productIds.length * 2);
+		productIds = Arrays.copyOf(productIds, capacity);
+		docCategory = Arrays.copyOf(docCategory, capacity);
+		docBrand = Arrays.copyOf(docBrand, capacity);
+		docPrice = Arrays.copyOf(docPrice, capacity);
+		docDiscount = Arrays.copyOf(docDiscount, capacity);
+		docQuantity = Arrays.copyOf(docQuantity, capacity);
+	}
+
+	private static List<Object[]> count(Map<Integer, BitSet> facet, Map<Integer, String> names, BitSet base) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (Map.Entry<Integer, BitSet> entry : facet.entrySet()) {
+			int count = cardinality(entry.getValue(), base);
+			if (count > 0) {
+				rows.add(new Object[] { entry.getKey(), names.get(entry.getKey()), count });
+			}
+		}
+		rows.sort((a, b) -> String.valueOf(a[1]).compareToIgnoreCase(String.valueOf(b[1])));
+		return rows;
+	}
+
+	private static List<Object[]> count(BitSet[] facet, String[] labels, BitSet base) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int i = 0; i < facet.length; i++) {
+			int count = cardinality(facet[i], base);
+			if (count > 0) {
+				rows.add(new Object[] { i, labels[i], count });
+			}
+		}
+		return rows;
+	}
+
+	private static int cardinality(BitSet bits, BitSet base) {
+		BitSet and = (BitSet) bits.clone();
+		and.and(base);
+		return and.cardinality();
+	}
+
+	private static BitSet[] newBitSets(int n) {
+		BitSet[] sets = new BitSet[n];
+		for (int i = 0; i < n; i++) {
+			sets[i] = new BitSet();
+		}
+		return sets;
+	}
+}
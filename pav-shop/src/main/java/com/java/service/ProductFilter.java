@@ -0,0 +1,90 @@
+package com.java.service;
+
+import java.util.Collections;
+import java.util.List;
+
+// Điều kiện lọc sản phẩm nhiều thuộc tính: các giá trị trong cùng một nhóm là OR, giữa các nhóm là AND
+public class ProductFilter {
+
+	private List<Integer> categoryIds = Collections.emptyList();
+	private List<Integer> brandIds = Collections.emptyList();
+	// chỉ số khoảng giá / mức giảm giá như trong ProductFacets
+	private List<Integer> priceBands = Collections.emptyList();
+	private List<Integer> discountBands = Collections.emptyList();
+	private Double minPrice;
+	private Double maxPrice;
+	private boolean onSale;
+	private boolean inStock;
+
+	public List<Integer> getCategoryIds() {
+		return categoryIds;
+	}
+
+	public ProductFilter setCategoryIds(List<Integer> categoryIds) {
+		this.categoryIds = categoryIds == null ? Collections.<Integer>emptyList() : categoryIds;
+		return this;
+	}
+
+	public List<Integer> getBrandIds() {
+		return brandIds;
+	}
+
+	public ProductFilter setBrandIds(List<Integer> brandIds) {
+		this.brandIds = brandIds == null ? Collections.<Integer>emptyList() : brandIds;
+		return this;
+	}
+
+	public List<Integer> getPriceBands() {
+		return priceBands;
+	}
+
+	public ProductFilter setPriceBands(List<Integer> priceBands) {
+		this.priceBands = priceBands == null ? Collections.<Integer>emptyList() : priceBands;
+		return this;
+	}
+
+	public List<Integer> getDiscountBands() {
+		return discountBands;
+	}
+
+	public ProductFilter setDiscountBands(List<Integer> discountBands) {
+		this.discountBands = discountBands == null ? Collections.<Integer>emptyList() : discountBands;
+		return this;
+	}
+
+	public Double getMinPrice() {
+		return minPrice;
+	}
+
+	public ProductFilter setMinPrice(Double minPrice) {
+		this.minPrice = minPrice;
+		return this;
+	}
+
+	public Double getMaxPrice() {
+		return maxPrice;
+	}
+
+	public ProductFilter setMaxPrice(Double maxPrice) {
+		this.maxPrice = maxPrice;
+		return this;
+	}
+
+	public boolean isOnSale() {
+		return onSale;
+	}
+
+	public ProductFilter setOnSale(boolean onSale) {
+		this.onSale = onSale;
+		return this;
+	}
+
+	public boolean isInStock() {
+		return inStock;
+	}
+
+	public ProductFilter setInStock(boolean inStock) {
+		this.inStock = inStock;
+		return this;
+	}
+}
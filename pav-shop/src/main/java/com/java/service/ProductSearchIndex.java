@@ -0,0 +1,213 @@
+package com.java.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.Product;
+import com.java.repository.ProductRepository;
+
+// Chỉ mục đảo ngược (inverted index) trong bộ nhớ trên name + description của sản phẩm.
+// Tìm kiếm bỏ dấu, khớp tiền tố và xếp hạng theo độ liên quan, không quét bảng products.
+@Service
+public class ProductSearchIndex {
+
+	// từ khớp trong tên quan trọng hơn từ khớp trong mô tả
+	private static final int NAME_WEIGHT = 3;
+	private static final int DESCRIPTION_WEIGHT = 1;
+	// khớp trọn từ được điểm gấp đôi khớp tiền tố
+	private static final int EXACT_BOOST = 2;
+
+	@Autowired
+	ProductRepository productRepository;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// từ -> (productId -> trọng số), TreeMap để duyệt tiền tố bằng subMap
+	private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<String, Map<Integer, Integer>>();
+
+	// productId -> các từ đã đánh chỉ mục, dùng khi xoá / cập nhật
+	private final Map<Integer, Set<String>> productTerms = new HashMap<Integer, Set<String>>();
+
+	// nạp toàn bộ chỉ mục lúc khởi động, chỉ đọc 3 cột
+	@PostConstruct
+	public void rebuild() {
+		List<Object[]> rows = productRepository.listProductText();
+		lock.writeLock().lock();
+		try {
+			postings.clear();
+			productTerms.clear();
+			for (Object[] row : rows) {
+				add((Integer) row[0], (String) row[1], (String) row[2]);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// thêm mới hoặc cập nhật một sản phẩm
+	public void index(Product product) {
+		lock.writeLock().lock();
+		try {
+			removeTerms(product.getProductId());
+			add(product.getProductId(), product.getName(), product.getDescription());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Integer productId) {
+		lock.writeLock().lock();
+		try {
+			removeTerms(productId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return productTerms.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// trả về productId theo thứ tự liên quan giảm dần, mọi từ khoá đều phải khớp (AND)
+	public List<Integer> search(String keyword) {
+		List<String> tokens = TextFolding.tokenize(keyword);
+		if (tokens.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		lock.readLock().lock();
+		try {
+			Map<Integer, Double> scores = null;
+			for (String token : tokens) {
+				Map<Integer, Double> tokenScores = scoreToken(token);
+				if (scores == null) {
+					scores = tokenScores;
+				} else {
+					Map<Integer, Double> merged = new HashMap<Integer, Double>();
+					for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+						Double score = tokenScores.get(entry.getKey());
+						if (score != null) {
+							merged.put(entry.getKey(), entry.getValue() + score);
+						}
+					}
+					scores = merged;
+				}
+				if (scores.isEmpty()) {
+					return Collections.emptyList();
+				}
+			}
+
+			List<Map.Entry<Integer, Double>> ranked = new ArrayList<Map.Entry<Integer, Double>>(scores.entrySet());
+			ranked.sort((a, b) -> {
+				int cmp = Double.compare(b.getValue(), a.getValue());
+				return cmp != 0 ? cmp : Integer.compare(b.getKey(), a.getKey());
+			});
+			List<Integer> ids = new ArrayList<Integer>(ranked.size());
+			for (Map.Entry<Integer, Double> entry : ranked) {
+				ids.add(entry.getKey());
+			}
+			return ids;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// tìm kiếm có phân trang, chỉ tải các sản phẩm của trang hiện tại theo khoá chính
+	public Page<Product> searchProducts(String keyword, Pageable pageable) {
+		return page(search(keyword), pageable);
+	}
+
+	// cắt một trang từ danh sách productId đã xếp hạng và tải sản phẩm theo đúng thứ tự đó
+	public Page<Product> page(List<Integer> ids, Pageable pageable) {
+		int from = (int) Math.min(pageable.getOffset(), ids.size());
+		int to = Math.min(from + pageable.getPageSize(), ids.size());
+		List<Integer> pageIds = ids.subList(from, to);
+
+		Map<Integer, Product> byId = new HashMap<Integer, Product>();
+		for (Product product : productRepository.findAllById(pageIds)) {
+			byId.put(product.getProductId(), product);
+		}
+		List<Product> products = new ArrayList<Product>(pageIds.size());
+		for (Integer id : pageIds) {
+			Product product = byId.get(id);
+			if (product != null) {
+				products.add(product);
+			}
+		}
+		return new PageImpl<Product>(products, pageable, ids.size());
+	}
+
+	// điểm của một từ khoá: khớp trọn từ hoặc khớp tiền tố, lấy điểm cao nhất cho mỗi sản phẩm
+	private Map<Integer, Double> scoreToken(String token) {
+		Map<Integer, Double> scores = new HashMap<Integer, Double>();
+		int total = Math.max(productTerms.size(), 1);
+		for (Map.Entry<String, Map<Integer, Integer>> term : postings
+				.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+			Map<Integer, Integer> docs = term.getValue();
+			double idf = Math.log(1.0 + (double) total / docs.size());
+			int boost = term.getKey().length() == token.length() ? EXACT_BOOST : 1;
+			for (Map.Entry<Integer, Integer> doc : docs.entrySet()) {
+				double score = doc.getValue() * boost * idf;
+				Double current = scores.get(doc.getKey());
+				if (current == null || current < score) {
+					scores.put(doc.getKey(), score);
+				}
+			}
+		}
+		return scores;
+	}
+
+	private void add(Integer productId, String name, String description) {
+		if (productId == null) {
+			return;
+		}
+		Map<String, Integer> weights = new HashMap<String, Integer>();
+		for (String token : TextFolding.tokenize(name)) {
+			weights.put(token, NAME_WEIGHT);
+		}
+		for (String token : TextFolding.tokenize(description)) {
+			weights.merge(token, DESCRIPTION_WEIGHT, (a, b) -> a == NAME_WEIGHT ? a + b : a);
+		}
+		for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+			postings.computeIfAbsent(entry.getKey(), k -> new HashMap<Integer, Integer>()).put(productId,
+					entry.getValue());
+		}
+		productTerms.put(productId, new HashSet<String>(weights.keySet()));
+	}
+
+	private void removeTerms(Integer productId) {
+		Set<String> terms = productTerms.remove(productId);
+		if (terms == null) {
+			return;
+		}
+		for (String term : terms) {
+			Map<Integer, Integer> docs = postings.get(term);
+			if (docs != null) {
+				docs.remove(productId);
+				if (docs.isEmpty()) {
+					postings.remove(term);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package com.java.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.Product;
+import com.java.entity.ProductSuggestion;
+import com.java.repository.OrderDetailRepository;
+import com.java.repository.ProductRepository;
+
+// Gợi ý tên sản phẩm theo tiền tố, dựng trên cây radix (radix tree) nén.
+// Mỗi nút giữ sẵn danh sách sản phẩm bán chạy nhất bên dưới nó nên tra cứu chỉ tốn O(độ dài tiền tố).
+@Service
+public class ProductSuggester {
+
+	// số ứng viên giữ ở mỗi nút, dư ra để bù các sản phẩm đã xoá / đổi tên
+	private static final int KEEP = 20;
+
+	private static final char[] NO_CHARS = new char[0];
+	private static final Node[] NO_NODES = new Node[0];
+	private static final int[] NO_IDS = new int[0];
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	OrderDetailRepository orderDetailRepository;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Node root = new Node("");
+
+	// productId -> tên hiển thị / tên đã bỏ dấu, thiếu trong map = sản phẩm đã xoá
+	private Map<Integer, String> names = new HashMap<Integer, String>();
+	private Map<Integer, String> foldedNames = new HashMap<Integer, String>();
+
+	// productId -> tổng số lượng đã bán
+	private Map<Integer, Long> sales = new HashMap<Integer, Long>();
+
+	// dựng lại toàn bộ cây lúc khởi động và định kỳ để cập nhật thứ hạng bán chạy
+	@PostConstruct
+	public void rebuild() {
+		Map<Integer, Long> newSales = new HashMap<Integer, Long>();
+		for (Object[] row : orderDetailRepository.sumQuantityByProduct()) {
+			newSales.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+		}
+		Map<Integer, String> newNames = new HashMap<Integer, String>();
+		Map<Integer, String> newFolded = new HashMap<Integer, String>();
+		Node newRoot = new Node("");
+		for (Object[] row : productRepository.listProductName()) {
+			Integer productId = (Integer) row[0];
+			String name = (String) row[1];
+			String folded = String.join(" ", TextFolding.tokenize(name));
+			newNames.put(productId, name);
+			newFolded.put(productId, folded);
+			insertKeys(newRoot, folded, productId, newSales);
+		}
+		newRoot.trim();
+
+		lock.writeLock().lock();
+		try {
+			root = newRoot;
+			names = newNames;
+			foldedNames = newFolded;
+			sales = newSales;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Scheduled(initialDelayString = "${pavshop.suggest.refresh-ms:3600000}", fixedDelayString = "${pavshop.suggest.refresh-ms:3600000}")
+	public void refresh() {
+		rebuild();
+	}
+
+	// thêm / đổi tên sản phẩm: chèn thêm khoá, khoá cũ bị lọc bỏ khi tra cứu
+	public void index(Product product) {
+		if (product.getProductId() == null) {
+			return;
+		}
+		String folded = String.join(" ", TextFolding.tokenize(product.getName()));
+		lock.writeLock().lock();
+		try {
+			names.put(product.getProductId(), product.getName());
+			foldedNames.put(product.getProductId(), folded);
+			insertKeys(root, folded, product.getProductId(), sales);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Integer productId) {
+		lock.writeLock().lock();
+		try {
+			names.remove(productId);
+			foldedNames.remove(productId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public List<ProductSuggestion> suggest(String prefix, int limit) {
+		String key = String.join(" ", TextFolding.tokenize(prefix));
+		List<ProductSuggestion> result = new ArrayList<ProductSuggestion>();
+		if (key.isEmpty()) {
+			return result;
+		}
+
+		lock.readLock().lock();
+		try {
+			Node node = find(key);
+			if (node == null) {
+				return result;
+			}
+			for (int i = 0; i < node.topSize && result.size() < limit; i++) {
+				int productId = node.top[i];
+				String folded = foldedNames.get(productId);
+				// bỏ sản phẩm đã xoá hoặc đã đổi tên không còn khớp tiền tố
+				if (folded != null && (" " + folded).contains(" " + key)) {
+					result.add(new ProductSuggestion(productId, names.get(productId)));
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// mỗi từ trong tên là một điểm bắt đầu: "tui xach da" -> "tui xach da", "xach da", "da"
+	private static void insertKeys(Node root, String folded, int productId, Map<Integer, Long> sales) {
+		if (folded.isEmpty()) {
+			return;
+		}
+		int start = 0;
+		while (start >= 0) {
+			insert(root, folded.substring(start), productId, sales);
+			int space = folded.indexOf(' ', start);
+			start = space < 0 ? -1 : space + 1;
+		}
+	}
+
+	private static void insert(Node root, String key, int productId, Map<Integer, Long> sales) {
+		Node node = root;
+		node.offer(productId, sales);
+		int i = 0;
+		while (i < key.length()) {
+			int idx = Arrays.binarySearch(node.firsts, key.charAt(i));
+			if (idx < 0) {
+				Node leaf = new Node(key.substring(i));
+				leaf.offer(productId, sales);
+				node.addChild(-idx - 1, leaf);
+				return;
+			}
+			Node child = node.children[idx];
+			int common = commonPrefix(child.label, key, i);
+			if (common < child.label.length()) {
+				// tách cạnh: nút trung gian mang phần nhãn chung, kế thừa danh sách ứng viên của nút con
+				Node middle = new Node(child.label.substring(0, common));
+				middle.top = Arrays.copyOf(child.top, Math.max(child.topSize, 1));
+				middle.topSize = child.topSize;
+				child.label = child.label.substring(common);
+				middle.firsts = new char[] { child.label.charAt(0) };
+				middle.children = new Node[] { child };
+				node.children[idx] = middle;
+				child = middle;
+			}
+			child.offer(productId, sales);
+			i += common;
+			node = child;
+		}
+	}
+
+	private Node find(String key) {
+		Node node = root;
+		int i = 0;
+		while (i < key.length()) {
+			int idx = Arrays.binarySearch(node.firsts, key.charAt(i));
+			if (idx < 0) {
+				return null;
+			}
+			Node child = node.children[idx];
+			int common = commonPrefix(child.label, key, i);
+			if (i + common == key.length()) {
+				return child;
+			}
+			if (common < child.label.length()) {
+				return null;
+			}
+			i += common;
+			node = child;
+		}
+		return node;
+	}
+
+	private static int commonPrefix(String label, String key, int offset) {
+		int max = Math.min(label.length(), key.length() - offset);
+		int n = 0;
+		while (n < max && label.charAt(n) == key.charAt(offset + n)) {
+			n++;
+		}
+		return n;
+	}
+
+	private static final class Node {
+
+		String label;
+		// con được sắp theo ký tự đầu của nhãn để tìm nhị phân
+		char[] firsts = NO_CHARS;
+		Node[] children = NO_NODES;
+		// productId xếp theo số lượng bán giảm dần
+		int[] top = NO_IDS;
+		int topSize;
+
+		Node(String label) {
+			this.label = label;
+		}
+
+		void addChild(int pos, Node child) {
+			char[] newFirsts = new char[firsts.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(firsts, 0, newFirsts, 0, pos);
+			System.arraycopy(children, 0, newChildren, 0, pos);
+			newFirsts[pos] = child.label.charAt(0);
+			newChildren[pos] = child;
+			System.arraycopy(firsts, pos, newFirsts, pos + 1, firsts.length - pos);
+			System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+			firsts = newFirsts;
+			children = newChildren;
+		}
+
+		void offer(int productId, Map<Integer, Long> sales) {
+			for (int i = 0; i < topSize; i++) {
+				if (top[i] == productId) {
+					return;
+				}
+			}
+			if (topSize == KEEP && !better(productId, top[KEEP - 1], sales)) {
+				return;
+			}
+			if (topSize == top.length) {
+				top = Arrays.copyOf(top, Math.min(Math.max(top.length * 2, 2), KEEP));
+			}
+			int pos = topSize == KEEP ? KEEP - 1 : topSize++;
+			while (pos > 0 && better(productId, top[pos - 1], sales)) {
+				top[pos] = top[pos - 1];
+				pos--;
+			}
+			top[pos] = productId;
+		}
+
+		// thu gọn mảng sau khi dựng xong để tiết kiệm bộ nhớ
+		void trim() {
+			if (top.length > topSize) {
+				top = Arrays.copyOf(top, topSize);
+			}
+			for (Node child : children) {
+				child.trim();
+			}
+		}
+
+		private static boolean better(int a, int b, Map<Integer, Long> sales) {
+			long sa = sales.getOrDefault(a, 0L);
+			long sb = sales.getOrDefault(b, 0L);
+			return sa != sb ? sa > sb : a > b;
+		}
+	}
+}
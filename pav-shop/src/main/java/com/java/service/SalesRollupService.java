@@ -0,0 +1,39 @@
+package com.java.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.repository.SalesRollupRepository;
+
+// Dựng bảng tổng hợp doanh số: lần đầu chạy (chưa có dòng đánh dấu đã dựng, nạp lại lịch sử đơn hàng cũ)
+// và định kỳ theo pavshop.report.rollup-rebuild-cron để min / max chính xác lại sau các lần xoá order detail
+// cũng như bắt kịp các thay đổi không đi qua OrderDetailService.
+@Service
+public class SalesRollupService {
+
+	@Autowired
+	SalesRollupRepository salesRollupRepository;
+
+	// bảng đã dựng xong lần đầu, trước đó các báo cáo gộp trực tiếp orderdetails
+	private volatile boolean ready;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void backfill() {
+		if (!salesRollupRepository.isBuilt()) {
+			salesRollupRepository.rebuild();
+		}
+		ready = true;
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	@Scheduled(cron = "${pavshop.report.rollup-rebuild-cron:0 30 3 * * *}")
+	public synchronized void rebuild() {
+		salesRollupRepository.rebuild();
+	}
+}
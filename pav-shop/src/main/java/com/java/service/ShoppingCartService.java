@@ -1,10 +1,12 @@
 package com.java.service;
 
 import java.util.Collection;
+import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
 import com.java.entity.CartItem;
+import com.java.entity.CartSummary;
 import com.java.entity.Product;
 
 @Service
@@ -14,6 +16,9 @@ public interface ShoppingCartService {
 
 	double getAmount();
 
+	// số dòng, tổng số lượng, tổng tiền được cập nhật dần, không duyệt giỏ
+	CartSummary getSummary();
+
 	void clear();
 	
 	Collection<CartItem> getCartItems();
@@ -23,4 +28,13 @@ public interface ShoppingCartService {
 	void add(CartItem item);
 
 	void remove(Product product);
+
+	// đặt lại số lượng của một sản phẩm đã có trong giỏ, false nếu sản phẩm chưa có trong giỏ
+	boolean update(int productId, int quantity);
+
+	// giá / giảm giá hiện tại (trang giỏ hàng / checkout vừa tính tiền): cập nhật giá đã lưu và tổng chạy của các dòng
+	void reprice(Map<Integer, CartPricingService.Price> prices);
+
+	// khách vừa đăng nhập: gộp giỏ ẩn danh hiện tại với giỏ đã lưu của khách, từ đó giỏ được lưu theo khách
+	void attachCustomer(String customerId);
 }
@@ -0,0 +1,123 @@
+package com.java.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Space-Saving (Metwally và cộng sự) có trọng số: giữ tối đa capacity bộ đếm sản phẩm -> số lượng bán.
+// Sản phẩm mới khi đã đầy thay chỗ bộ đếm nhỏ nhất và thừa kế giá trị đó (ghi vào error), nên
+// count luôn >= số thật và count - error <= số thật; mọi sản phẩm có số thật > tổng / capacity đều có mặt.
+// Bộ đếm nhỏ nhất tìm bằng min-heap có chỉ mục, mỗi lần cộng O(log capacity). Không an toàn luồng.
+public final class SpaceSavingSketch {
+
+	private final int[] keys;
+	private final long[] counts;
+	private final long[] errors;
+	// heap[i] = ô bộ đếm, position[ô] = vị trí trong heap
+	private final int[] heap;
+	private final int[] position;
+	private final Map<Integer, Integer> slots;
+	private int size;
+	private long total;
+
+	public SpaceSavingSketch(int capacity) {
+		keys = new int[capacity];
+		counts = new long[capacity];
+		errors = new long[capacity];
+		heap = new int[capacity];
+		position = new int[capacity];
+		slots = new HashMap<Integer, Integer>(capacity * 2);
+	}
+
+	public void add(int key, long weight) {
+		if (weight <= 0 || keys.length == 0) {
+			return;
+		}
+		total += weight;
+		Integer slot = slots.get(key);
+		if (slot != null) {
+			counts[slot] += weight;
+			siftDown(position[slot]);
+			return;
+		}
+		if (size < keys.length) {
+			slot = size;
+			keys[slot] = key;
+			counts[slot] = weight;
+			errors[slot] = 0;
+			heap[size] = slot;
+			position[slot] = size;
+			slots.put(key, slot);
+			siftUp(size++);
+			return;
+		}
+		// thay bộ đếm nhỏ nhất ở gốc heap
+		slot = heap[0];
+		slots.remove(keys[slot]);
+		keys[slot] = key;
+		errors[slot] = counts[slot];
+		counts[slot] += weight;
+		slots.put(key, slot);
+		siftDown(0);
+	}
+
+	public void clear() {
+		slots.clear();
+		size = 0;
+		total = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int key(int i) {
+		return keys[i];
+	}
+
+	public long count(int i) {
+		return counts[i];
+	}
+
+	public long error(int i) {
+		return errors[i];
+	}
+
+	// tổng trọng số đã cộng
+	public long total() {
+		return total;
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (counts[heap[parent]] <= counts[heap[i]]) {
+				return;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int left = 2 * i + 1;
+			if (left >= size) {
+				return;
+			}
+			int smallest = left + 1 < size && counts[heap[left + 1]] < counts[heap[left]] ? left + 1 : left;
+			if (counts[heap[i]] <= counts[heap[smallest]]) {
+				return;
+			}
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+
+	private void swap(int i, int j) {
+		int slot = heap[i];
+		heap[i] = heap[j];
+		heap[j] = slot;
+		position[heap[i]] = i;
+		position[heap[j]] = j;
+	}
+}
@@ -0,0 +1,348 @@
+package com.java.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.web.authentication.session.SessionFixationProtectionEvent;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.Product;
+import com.java.repository.ProductRepository;
+
+// Giữ hàng (reservation) trong bộ nhớ theo productId, không khoá dòng products khi khách thêm vào giỏ / đặt hàng.
+// - available: số lượng còn có thể giữ, trừ bằng compareAndSet nên không bao giờ bán quá tồn kho
+// - reserve / release: giữ / trả hàng theo chủ sở hữu (session id), tự trả khi quá hạn (TTL)
+// - commit: đơn hàng đã đặt, phần đã giữ trở thành phần đã bán (pending) và được ghi dồn xuống
+//   products.quantity định kỳ bằng một batch UPDATE quantity = quantity + delta
+// - cancel: đơn đã commit nhưng cuối cùng không ghi được (hàng đợi ghi đơn báo lỗi), trả lại phần đã bán
+// Sản phẩm có quantity = null coi như không quản lý tồn kho, luôn giữ được.
+// available chuyển giữa 0 và khác 0 thì báo ProductFacetIndex để bộ lọc "còn hàng" theo đúng phần còn giữ được.
+@Service
+public class StockReservationService {
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	ProductFacetIndex productFacetIndex;
+
+	@Value("${pavshop.stock.reservation-ttl-minutes:30}")
+	private long ttlMinutes;
+
+	private final Map<Integer, Stock> stocks = new ConcurrentHashMap<Integer, Stock>();
+
+	// chủ sở hữu -> (productId -> phần đang giữ)
+	private final Map<String, Map<Integer, Reservation>> reservations = new ConcurrentHashMap<String, Map<Integer, Reservation>>();
+
+	@PostConstruct
+	public void load() {
+		for (Object[] row : productRepository.listProductStock()) {
+			Integer quantity = (Integer) row[1];
+			if (quantity != null) {
+				stocks.put((Integer) row[0], new Stock(quantity, quantity));
+			}
+		}
+	}
+
+	// ghi nốt phần đã bán trước khi tắt ứng dụng
+	@PreDestroy
+	public void shutdown() {
+		flush();
+	}
+
+	// giữ thêm quantity sản phẩm cho owner, false nếu không đủ hàng
+	public boolean reserve(String owner, Integer productId, int quantity) {
+		if (quantity <= 0) {
+			return true;
+		}
+		Stock stock = stocks.get(productId);
+		if (stock != null) {
+			int left = stock.take(quantity);
+			if (left < 0) {
+				return false;
+			}
+			if (left == 0) {
+				stockChanged(productId);
+			}
+		}
+		// sửa map của owner trong compute của reservations: commit / releaseAll / expire không thể gỡ map này
+		// giữa chừng làm phần vừa giữ rơi vào một map không còn gắn với owner nào
+		reservations.compute(owner, (o, held) -> {
+			Map<Integer, Reservation> owned = held != null ? held : new ConcurrentHashMap<Integer, Reservation>();
+			owned.compute(productId, (k, r) -> {
+				Reservation reservation = r == null ? new Reservation() : r;
+				reservation.quantity += quantity;
+				reservation.expiresAt = expiresAt();
+				return reservation;
+			});
+			return owned;
+		});
+		return true;
+	}
+
+	// giữ cho đủ quantity (giữ thêm phần thiếu hoặc trả bớt phần dư), false nếu không đủ hàng
+	public boolean reserveExactly(String owner, Integer productId, int quantity) {
+		int held = reserved(owner, productId);
+		if (quantity > held) {
+			return reserve(owner, productId, quantity - held);
+		}
+		if (quantity < held) {
+			release(owner, productId, held - quantity);
+		}
+		return true;
+	}
+
+	public int reserved(String owner, Integer productId) {
+		Map<Integer, Reservation> held = reservations.get(owner);
+		Reservation reservation = held == null ? null : held.get(productId);
+		return reservation == null ? 0 : reservation.quantity;
+	}
+
+	// trả toàn bộ phần đang giữ của một sản phẩm
+	public void release(String owner, Integer productId) {
+		release(owner, productId, Integer.MAX_VALUE);
+	}
+
+	public void release(String owner, Integer productId, int quantity) {
+		int[] returned = new int[1];
+		reservations.computeIfPresent(owner, (o, held) -> {
+			held.computeIfPresent(productId, (k, r) -> {
+				returned[0] = Math.min(quantity, r.quantity);
+				r.quantity -= returned[0];
+				return r.quantity > 0 ? r : null;
+			});
+			return held.isEmpty() ? null : held;
+		});
+		giveBack(productId, returned[0]);
+	}
+
+	public void releaseAll(String owner) {
+		Map<Integer, Reservation> held = reservations.remove(owner);
+		if (held == null) {
+			return;
+		}
+		for (Map.Entry<Integer, Reservation> entry : held.entrySet()) {
+			giveBack(entry.getKey(), entry.getValue().quantity);
+		}
+	}
+
+	// đơn hàng đã đặt: toàn bộ phần đang giữ của owner trở thành phần đã bán, chờ flush xuống DB
+	// (remove nguyên tử với compute của reserve: phần giữ song song hoặc nằm trong map bị gỡ hoặc ở map mới)
+	public void commit(String owner) {
+		Map<Integer, Reservation> held = reservations.remove(owner);
+		if (held == null) {
+			return;
+		}
+		for (Map.Entry<Integer, Reservation> entry : held.entrySet()) {
+			Stock stock = stocks.get(entry.getKey());
+			if (stock != null) {
+				stock.pending.addAndGet(-entry.getValue().quantity);
+			}
+		}
+	}
+
+	// đơn hàng đã commit nhưng không lưu được: trả quantity về available và bỏ phần đã bán tương ứng
+	public void cancel(Integer productId, int quantity) {
+		if (quantity <= 0) {
+			return;
+		}
+		Stock stock = stocks.get(productId);
+		if (stock != null) {
+			stock.pending.addAndGet(quantity);
+			added(productId, stock.available.addAndGet(quantity), quantity);
+		}
+	}
+
+	// số lượng còn có thể giữ, null nếu sản phẩm không quản lý tồn kho
+	public Integer available(Integer productId) {
+		Stock stock = stocks.get(productId);
+		return stock == null ? null : stock.available.get();
+	}
+
+	// admin vừa lưu sản phẩm: products.quantity trong DB là giá trị mới. Không thay bộ đếm mà cộng phần chênh
+	// so với giá trị DB đã biết vào available, nên phần khách đang giữ, phần đã bán chưa flush (vẫn được ghi
+	// dồn lên giá trị mới) và các lần giữ hàng đang chạy song song đều được giữ nguyên
+	public void reload(Product product) {
+		Integer productId = product.getProductId();
+		if (product.getQuantity() == null) {
+			stocks.remove(productId);
+			stockChanged(productId);
+			return;
+		}
+		int quantity = product.getQuantity();
+		// sản phẩm mới bắt đầu quản lý tồn kho: phần đã giữ trước đó (không trừ vào đâu) trừ vào available
+		Stock stock = stocks.computeIfAbsent(productId, k -> new Stock(quantity, quantity - held(productId)));
+		int diff = quantity - stock.stored.getAndSet(quantity);
+		if (diff != 0) {
+			stock.available.addAndGet(diff);
+		}
+		// ProductFacetIndex.index vừa xếp theo products.quantity, xếp lại theo phần còn giữ được
+		stockChanged(productId);
+	}
+
+	public void remove(Integer productId) {
+		stocks.remove(productId);
+	}
+
+	// tổng phần đang giữ của một sản phẩm trên mọi chủ sở hữu
+	private int held(Integer productId) {
+		int held = 0;
+		for (Map<Integer, Reservation> owned : reservations.values()) {
+			Reservation reservation = owned.get(productId);
+			if (reservation != null) {
+				held += reservation.quantity;
+			}
+		}
+		return held;
+	}
+
+	// đăng nhập đổi session id (chống session fixation): chuyển phần đang giữ sang session id mới
+	@EventListener
+	public void onSessionIdChanged(SessionFixationProtectionEvent event) {
+		Map<Integer, Reservation> held = reservations.remove(event.getOldSessionId());
+		if (held != null) {
+			reservations.merge(event.getNewSessionId(), held, (current, moved) -> {
+				for (Map.Entry<Integer, Reservation> entry : moved.entrySet()) {
+					current.merge(entry.getKey(), entry.getValue(), (a, b) -> {
+						a.quantity += b.quantity;
+						a.expiresAt = Math.max(a.expiresAt, b.expiresAt);
+						return a;
+					});
+				}
+				return current;
+			});
+		}
+	}
+
+	// trả hàng của các giỏ bị bỏ quên
+	@Scheduled(fixedDelay = 60000)
+	public void expire() {
+		long now = System.currentTimeMillis();
+		for (String owner : new ArrayList<String>(reservations.keySet())) {
+			Map<Integer, Integer> returned = new HashMap<Integer, Integer>();
+			// gỡ owner trong cùng compute chỉ khi map vẫn rỗng, reserve song song không thể rơi vào map đã gỡ
+			reservations.computeIfPresent(owner, (o, held) -> {
+				for (Iterator<Map.Entry<Integer, Reservation>> entries = held.entrySet().iterator(); entries.hasNext();) {
+					Map.Entry<Integer, Reservation> entry = entries.next();
+					if (entry.getValue().expiresAt <= now) {
+						returned.put(entry.getKey(), entry.getValue().quantity);
+						entries.remove();
+					}
+				}
+				return held.isEmpty() ? null : held;
+			});
+			for (Map.Entry<Integer, Integer> entry : returned.entrySet()) {
+				giveBack(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	// ghi dồn phần đã bán xuống products.quantity, lỗi thì cộng trả lại để lần sau ghi tiếp
+	@Scheduled(initialDelayString = "${pavshop.stock.flush-ms:5000}", fixedDelayString = "${pavshop.stock.flush-ms:5000}")
+	public void flush() {
+		List<Object[]> deltas = new ArrayList<Object[]>();
+		for (Map.Entry<Integer, Stock> entry : stocks.entrySet()) {
+			int delta = entry.getValue().pending.getAndSet(0);
+			if (delta != 0) {
+				deltas.add(new Object[] { delta, entry.getKey() });
+			}
+		}
+		if (deltas.isEmpty()) {
+			return;
+		}
+		try {
+			jdbcTemplate.batchUpdate(
+					"UPDATE products SET quantity = quantity + ? WHERE productId = ? AND quantity IS NOT NULL", deltas);
+			for (Object[] delta : deltas) {
+				Stock stock = stocks.get(delta[1]);
+				if (stock != null) {
+					stock.stored.addAndGet((Integer) delta[0]);
+				}
+			}
+		} catch (RuntimeException e) {
+			for (Object[] delta : deltas) {
+				Stock stock = stocks.get(delta[1]);
+				if (stock != null) {
+					stock.pending.addAndGet((Integer) delta[0]);
+				}
+			}
+			throw e;
+		}
+	}
+
+	private void giveBack(Integer productId, int quantity) {
+		if (quantity <= 0) {
+			return;
+		}
+		Stock stock = stocks.get(productId);
+		if (stock != null) {
+			added(productId, stock.available.addAndGet(quantity), quantity);
+		}
+	}
+
+	// vừa cộng quantity vào available: từ hết hàng sang còn hàng thì báo bộ lọc
+	private void added(Integer productId, int available, int quantity) {
+		if (available > 0 && available - quantity <= 0) {
+			stockChanged(productId);
+		}
+	}
+
+	private void stockChanged(Integer productId) {
+		productFacetIndex.updateStock(productId, () -> available(productId));
+	}
+
+	private long expiresAt() {
+		return System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+	}
+
+	private static final class Stock {
+
+		final AtomicInteger available;
+		// đã bán nhưng chưa ghi xuống DB (số âm)
+		final AtomicInteger pending = new AtomicInteger();
+		// products.quantity trong DB theo bộ nhớ: lần nạp / admin lưu gần nhất cộng các lần flush sau đó
+		final AtomicInteger stored;
+
+		Stock(int stored, int available) {
+			this.stored = new AtomicInteger(stored);
+			this.available = new AtomicInteger(available);
+		}
+
+		// số còn lại sau khi giữ, -1 nếu không đủ hàng
+		int take(int quantity) {
+			while (true) {
+				int current = available.get();
+				if (current < quantity) {
+					return -1;
+				}
+				if (available.compareAndSet(current, current - quantity)) {
+					return current - quantity;
+				}
+			}
+		}
+	}
+
+	// chỉ được sửa trong compute của ConcurrentHashMap (map của owner thì trong compute của reservations), volatile để các luồng đọc thấy giá trị mới
+	private static final class Reservation {
+
+		volatile int quantity;
+		volatile long expiresAt;
+	}
+}
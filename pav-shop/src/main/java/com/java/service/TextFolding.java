@@ -0,0 +1,38 @@
+package com.java.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Chuẩn hoá chuỗi tiếng Việt để tìm kiếm: bỏ dấu ("Túi xách" -> "tui xach"), chữ thường, tách từ
+public final class TextFolding {
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+	private TextFolding() {
+	}
+
+	public static String fold(String text) {
+		if (text == null) {
+			return "";
+		}
+		// "đ" không tách được dấu bằng NFD nên phải thay tay
+		String replaced = text.replace('đ', 'd').replace('Đ', 'D');
+		String decomposed = Normalizer.normalize(replaced, Normalizer.Form.NFD);
+		return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	public static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<String>();
+		for (String token : SEPARATORS.split(fold(text))) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,226 @@
+package com.java.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.entity.OrderDetail;
+import com.java.entity.Product;
+import com.java.repository.OrderDetailRepository;
+import com.java.repository.ProductRepository;
+
+// Sản phẩm bán chạy / đang thịnh hành cho trang chủ, không chạy truy vấn gộp trên orderdetails.
+// Mỗi đơn hàng vừa ghi được cộng (theo số lượng) vào các SpaceSavingSketch:
+// - all: toàn thời gian, nạp lần đầu từ tổng số lượng bán lúc khởi động
+// - hour / day / week: cửa sổ trượt, mỗi cửa sổ là vòng các sketch con theo khoảng thời gian,
+//   khoảng cũ nhất bị xoá khi quay vòng tới (hour: 12 x 5 phút, day: 24 x 1 giờ, week: 28 x 6 giờ)
+// Định kỳ (pavshop.trending.refresh-ms) gộp các sketch con, lấy TOP sản phẩm rồi đọc tên / ảnh / giá,
+// trang chủ chỉ đọc danh sách đã dựng sẵn (O(TOP)).
+@Service
+public class TrendingProducts {
+
+	private static final Logger log = LoggerFactory.getLogger(TrendingProducts.class);
+
+	public static final String HOUR = "hour";
+	public static final String DAY = "day";
+	public static final String WEEK = "week";
+	public static final String ALL = "all";
+
+	public static final int TOP = 10;
+
+	private static final long MINUTE_MS = 60 * 1000L;
+	private static final long HOUR_MS = 60 * MINUTE_MS;
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	OrderDetailRepository orderDetailRepository;
+
+	// số bộ đếm mỗi sketch, càng lớn thì thứ hạng càng sát số thật
+	@Value("${pavshop.trending.capacity:256}")
+	private int capacity;
+
+	private Window hour;
+	private Window day;
+	private Window week;
+	private SpaceSavingSketch all;
+
+	// mỗi dòng giống OrderDetailRepository.topOrder: name, image, productId, quantity, price, discount
+	private volatile Map<String, List<Object[]>> top = Collections.emptyMap();
+
+	@PostConstruct
+	public void init() {
+		hour = new Window(12, 5 * MINUTE_MS, capacity);
+		day = new Window(24, HOUR_MS, capacity);
+		week = new Window(28, 6 * HOUR_MS, capacity);
+		all = new SpaceSavingSketch(capacity);
+		seed();
+	}
+
+	// nạp toàn thời gian và 7 ngày gần nhất (orderDate chỉ có ngày nên đơn cũ tính vào đầu ngày đặt hàng,
+	// hour / day chỉ tính các đơn từ lúc khởi động), lỗi thì bắt đầu từ rỗng.
+	// Chạy lúc khởi tạo bean, trước OrderIntakeQueue (phụ thuộc bean này) nạp lại journal và trước khi nhận request,
+	// nên mọi đơn ghi sau đó chỉ được tính một lần qua record()
+	private void seed() {
+		try {
+			List<Object[]> totals = orderDetailRepository.sumQuantityByProduct();
+			LocalDate from = LocalDate.now().minusDays(7);
+			List<Object[]> days = orderDetailRepository.sumQuantityByProductDay(java.sql.Date.valueOf(from));
+			synchronized (this) {
+				for (Object[] row : totals) {
+					all.add(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+				}
+				for (Object[] row : days) {
+					LocalDate date = ((java.sql.Date) row[1]).toLocalDate();
+					long at = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+					week.add(at, ((Number) row[0]).intValue(), ((Number) row[2]).longValue());
+				}
+			}
+			refresh();
+		} catch (RuntimeException e) {
+			// lỗi lúc khởi động không chặn ứng dụng, lần refresh định kỳ sau dựng lại danh sách
+			log.error("Không nạp được số liệu bán hàng cho sản phẩm thịnh hành, bắt đầu từ rỗng", e);
+		}
+	}
+
+	// gọi sau khi đơn hàng đã được ghi (đặt hàng trực tiếp hoặc qua OrderIntakeQueue)
+	public void record(Collection<OrderDetail> orderDetails) {
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			for (OrderDetail orderDetail : orderDetails) {
+				if (orderDetail.getProduct() == null || orderDetail.getProduct().getProductId() == null
+						|| orderDetail.getQuantity() == null) {
+					continue;
+				}
+				int productId = orderDetail.getProduct().getProductId();
+				int quantity = orderDetail.getQuantity();
+				hour.add(now, productId, quantity);
+				day.add(now, productId, quantity);
+				week.add(now, productId, quantity);
+				all.add(productId, quantity);
+			}
+		}
+	}
+
+	public List<Object[]> top(String window) {
+		List<Object[]> rows = top.get(window);
+		return rows != null ? rows : Collections.<Object[]>emptyList();
+	}
+
+	@Scheduled(initialDelayString = "${pavshop.trending.refresh-ms:10000}", fixedDelayString = "${pavshop.trending.refresh-ms:10000}")
+	public void refresh() {
+		long now = System.currentTimeMillis();
+		Map<String, List<long[]>> ranked = new HashMap<String, List<long[]>>();
+		synchronized (this) {
+			ranked.put(HOUR, rank(hour.counts(now)));
+			ranked.put(DAY, rank(day.counts(now)));
+			ranked.put(WEEK, rank(week.counts(now)));
+			Map<Integer, Long> counts = new HashMap<Integer, Long>();
+			for (int i = 0; i < all.size(); i++) {
+				counts.put(all.key(i), all.count(i));
+			}
+			ranked.put(ALL, rank(counts));
+		}
+
+		// một truy vấn theo khoá cho mọi sản phẩm xuất hiện, sản phẩm đã bị xoá thì bỏ qua
+		Set<Integer> productIds = new HashSet<Integer>();
+		for (List<long[]> entries : ranked.values()) {
+			for (long[] entry : entries) {
+				productIds.add((int) entry[0]);
+			}
+		}
+		Map<Integer, Product> products = new HashMap<Integer, Product>();
+		if (!productIds.isEmpty()) {
+			for (Product product : productRepository.findAllById(productIds)) {
+				products.put(product.getProductId(), product);
+			}
+		}
+		Map<String, List<Object[]>> top = new HashMap<String, List<Object[]>>();
+		for (Map.Entry<String, List<long[]>> window : ranked.entrySet()) {
+			List<Object[]> rows = new ArrayList<Object[]>(TOP);
+			for (long[] entry : window.getValue()) {
+				Product product = products.get((int) entry[0]);
+				if (product != null && rows.size() < TOP) {
+					rows.add(new Object[] { product.getName(), product.getImage(), product.getProductId(), entry[1],
+							product.getPrice(), product.getDiscount() });
+				}
+			}
+			top.put(window.getKey(), Collections.unmodifiableList(rows));
+		}
+		this.top = Collections.unmodifiableMap(top);
+	}
+
+	// { productId, count } giảm dần, dư ra vài dòng phòng sản phẩm đã bị xoá
+	private static List<long[]> rank(Map<Integer, Long> counts) {
+		List<long[]> entries = new ArrayList<long[]>(counts.size());
+		for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+			entries.add(new long[] { entry.getKey(), entry.getValue() });
+		}
+		entries.sort((a, b) -> Long.compare(b[1], a[1]));
+		return entries.size() > 2 * TOP ? new ArrayList<long[]>(entries.subList(0, 2 * TOP)) : entries;
+	}
+
+	// cửa sổ trượt: buckets[epoch % n] giữ số bán trong khoảng [epoch * bucketMs, (epoch + 1) * bucketMs)
+	private static final class Window {
+
+		private final long bucketMs;
+		private final SpaceSavingSketch[] buckets;
+		private final long[] epochs;
+
+		Window(int n, long bucketMs, int capacity) {
+			this.bucketMs = bucketMs;
+			buckets = new SpaceSavingSketch[n];
+			epochs = new long[n];
+			for (int i = 0; i < n; i++) {
+				buckets[i] = new SpaceSavingSketch(capacity);
+				epochs[i] = Long.MIN_VALUE;
+			}
+		}
+
+		void add(long at, int productId, long quantity) {
+			long epoch = at / bucketMs;
+			int i = (int) (epoch % buckets.length);
+			if (epochs[i] > epoch) {
+				// khoảng này đã bị khoảng mới hơn thay chỗ
+				return;
+			}
+			if (epochs[i] != epoch) {
+				buckets[i].clear();
+				epochs[i] = epoch;
+			}
+			buckets[i].add(productId, quantity);
+		}
+
+		// cộng các sketch con còn nằm trong cửa sổ (ước lượng trên, sai số <= tổng error của các khoảng)
+		Map<Integer, Long> counts(long now) {
+			long epoch = now / bucketMs;
+			Map<Integer, Long> counts = new HashMap<Integer, Long>();
+			for (int i = 0; i < buckets.length; i++) {
+				if (epochs[i] > epoch - buckets.length && epochs[i] <= epoch) {
+					SpaceSavingSketch bucket = buckets[i];
+					for (int s = 0; s < bucket.size(); s++) {
+						counts.merge(bucket.key(s), bucket.count(s), Long::sum);
+					}
+				}
+			}
+			return counts;
+		}
+	}
+}
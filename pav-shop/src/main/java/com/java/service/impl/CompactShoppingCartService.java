@@ -0,0 +1,260 @@
+package com.java.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.annotation.SessionScope;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.java.entity.CartItem;
+import com.java.entity.CartSummary;
+import com.java.entity.Product;
+import com.java.repository.ProductRepository;
+import com.java.service.CartPricingService;
+import com.java.service.CartStore;
+import com.java.service.CompactCart;
+import com.java.service.CustomerCartStore;
+import com.java.service.ShoppingCartService;
+
+// Giỏ hàng mặc định: session chỉ giữ mã giỏ, nội dung (productId, số lượng, giá lúc thêm) nằm trong CartStore.
+// Mã giỏ được lưu trong cookie nên giỏ còn nguyên khi session hết hạn hoặc ứng dụng khởi động lại (với store file).
+// Khi khách đăng nhập, giỏ được gộp với giỏ đã lưu của khách (CustomerCartStore) và ghi sau theo lô.
+// CartItem kèm Product chỉ được dựng khi cần hiển thị, một truy vấn findAllById và dùng lại trong cùng request.
+@Service
+@SessionScope
+@ConditionalOnProperty(name = "pavshop.cart.impl", havingValue = "compact", matchIfMissing = true)
+public class CompactShoppingCartService implements ShoppingCartService {
+
+	public static final String CART_COOKIE = "PAVCART";
+
+	private static final int CART_COOKIE_MAX_AGE = 30 * 24 * 60 * 60;
+
+	private static final String ITEMS_ATTRIBUTE = CompactShoppingCartService.class.getName() + ".items";
+
+	@Autowired
+	CartStore cartStore;
+
+	@Autowired
+	ProductRepository productRepository;
+
+	@Autowired
+	CustomerCartStore customerCartStore;
+
+	private String cartId;
+
+	// khách đã đăng nhập, mọi thay đổi giỏ được ghi sau (write-behind) vào customer_carts
+	private String customerId;
+
+	// tổng hợp của giỏ giữ ngay trong session (vài con số), null = chưa nạp từ store
+	private CartSummary summary;
+
+	@Override
+	public synchronized int getCount() {
+		return getSummary().getCount();
+	}
+
+	@Override
+	public synchronized double getAmount() {
+		return getSummary().getAmount();
+	}
+
+	@Override
+	public synchronized CartSummary getSummary() {
+		if (summary == null) {
+			// khách mới chưa có cookie giỏ hàng: không cần tạo mã giỏ hay đọc store
+			summary = existingCartId() == null ? CartSummary.EMPTY : cart().summary();
+		}
+		return summary;
+	}
+
+	@Override
+	public synchronized void clear() {
+		cartStore.delete(cartId());
+		if (customerId != null) {
+			customerCartStore.markDirty(customerId, new CompactCart());
+		}
+		summary = CartSummary.EMPTY;
+		invalidateItems();
+	}
+
+	@Override
+	public synchronized Collection<CartItem> getCartItems() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		@SuppressWarnings("unchecked")
+		Collection<CartItem> items = attributes == null ? null
+				: (Collection<CartItem>) attributes.getAttribute(ITEMS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (items == null) {
+			items = loadItems(cart());
+			if (attributes != null) {
+				attributes.setAttribute(ITEMS_ATTRIBUTE, items, RequestAttributes.SCOPE_REQUEST);
+			}
+		}
+		return items;
+	}
+
+	@Override
+	public synchronized void remove(CartItem item) {
+		remove(item.getProductId());
+	}
+
+	@Override
+	public synchronized void add(CartItem item) {
+		CompactCart cart = cart();
+		Product product = item.getProduct();
+		double price = product != null && product.getPrice() != null ? product.getPrice() : item.getUnitPrice();
+		double discount = product != null && product.getDiscount() != null ? product.getDiscount() : 0;
+		cart.add(item.getProductId(), item.getQuantity(), price, discount);
+		save(cart);
+	}
+
+	@Override
+	public synchronized void remove(Product product) {
+		remove(product.getProductId());
+	}
+
+	@Override
+	public synchronized boolean update(int productId, int quantity) {
+		CompactCart cart = cart();
+		if (!cart.setQuantity(productId, quantity)) {
+			return false;
+		}
+		save(cart);
+		return true;
+	}
+
+	// chỉ ghi lại giỏ khi có dòng đổi giá
+	@Override
+	public synchronized void reprice(Map<Integer, CartPricingService.Price> prices) {
+		CompactCart cart = cart();
+		boolean changed = false;
+		for (Map.Entry<Integer, CartPricingService.Price> entry : prices.entrySet()) {
+			changed |= cart.setPrice(entry.getKey(), entry.getValue().getPrice(), entry.getValue().getDiscount());
+		}
+		if (changed) {
+			save(cart);
+		}
+	}
+
+	private void remove(int productId) {
+		CompactCart cart = cart();
+		if (cart.remove(productId)) {
+			save(cart);
+		}
+	}
+
+	// gộp giỏ ẩn danh vào giỏ đã lưu của khách: dòng có ở cả hai bên lấy số lượng lớn hơn
+	// (đăng nhập nhiều lần không nhân đôi giỏ), dòng chỉ có ở một bên được giữ nguyên
+	@Override
+	public synchronized void attachCustomer(String customerId) {
+		CompactCart saved = customerCartStore.load(customerId);
+		CompactCart cart = cart();
+		this.customerId = customerId;
+		if (saved == null && cart.isEmpty()) {
+			return;
+		}
+		if (saved != null) {
+			saved.forEach((productId, quantity, price, discount) -> {
+				int current = cart.quantity(productId);
+				if (current == 0) {
+					cart.add(productId, quantity, price, discount);
+				} else if (quantity > current) {
+					cart.setQuantity(productId, quantity);
+				}
+			});
+		}
+		save(cart);
+	}
+
+	private void save(CompactCart cart) {
+		cartStore.save(cartId(), cart);
+		if (customerId != null) {
+			customerCartStore.markDirty(customerId, cart);
+		}
+		summary = cart.summary();
+		invalidateItems();
+	}
+
+	private CompactCart cart() {
+		CompactCart cart = cartStore.load(cartId());
+		return cart != null ? cart : new CompactCart();
+	}
+
+	// dựng CartItem theo giá đã lưu, Product chỉ để hiển thị tên / ảnh; sản phẩm đã bị xoá thì bỏ qua
+	private Collection<CartItem> loadItems(CompactCart cart) {
+		if (cart.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Integer> ids = new ArrayList<Integer>(cart.size());
+		for (int productId : cart.productIds()) {
+			ids.add(productId);
+		}
+		Map<Integer, Product> products = new HashMap<Integer, Product>();
+		for (Product product : productRepository.findAllById(ids)) {
+			products.put(product.getProductId(), product);
+		}
+		List<CartItem> items = new ArrayList<CartItem>(cart.size());
+		cart.forEach((productId, quantity, price, discount) -> {
+			Product product = products.get(productId);
+			if (product != null) {
+				items.add(new CartItem(productId, product.getName(), price, quantity, quantity * price, product));
+			}
+		});
+		return items;
+	}
+
+	private void invalidateItems() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.removeAttribute(ITEMS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	// lấy mã giỏ từ cookie ở lần truy cập đầu của session, chưa có thì tạo mới
+	private String cartId() {
+		if (existingCartId() != null) {
+			return cartId;
+		}
+		cartId = UUID.randomUUID().toString();
+		HttpServletResponse response = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes())
+				.getResponse();
+		if (response != null) {
+			Cookie cookie = new Cookie(CART_COOKIE, cartId);
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+			cookie.setMaxAge(CART_COOKIE_MAX_AGE);
+			response.addCookie(cookie);
+		}
+		return cartId;
+	}
+
+	private String existingCartId() {
+		if (cartId != null) {
+			return cartId;
+		}
+		HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes())
+				.getRequest();
+		if (request.getCookies() != null) {
+			for (Cookie cookie : request.getCookies()) {
+				// cookie bị sửa thành mã không hợp lệ thì bỏ qua, cartId() tạo mã mới phía server
+				if (CART_COOKIE.equals(cookie.getName()) && CartStore.isValidCartId(cookie.getValue())) {
+					cartId = cookie.getValue();
+				}
+			}
+		}
+		return cartId;
+	}
+}
@@ -0,0 +1,107 @@
+package com.java.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.service.CartStore;
+import com.java.service.CompactCart;
+
+// Lưu mỗi giỏ hàng thành một file nhị phân nhỏ <cartId>.cart, giỏ còn nguyên sau khi khởi động lại
+@Service
+@ConditionalOnProperty(name = "pavshop.cart.store", havingValue = "file")
+public class FileCartStore implements CartStore {
+
+	@Value("${pavshop.cart.dir:carts}")
+	private String cartDir;
+
+	@Value("${pavshop.cart.ttl-days:30}")
+	private long ttlDays;
+
+	private Path dir;
+
+	@PostConstruct
+	public void init() throws IOException {
+		dir = Paths.get(cartDir);
+		Files.createDirectories(dir);
+	}
+
+	@Override
+	public CompactCart load(String cartId) {
+		Path file = file(cartId);
+		if (file == null) {
+			return null;
+		}
+		try {
+			byte[] data = Files.readAllBytes(file);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return CompactCart.fromBytes(data);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// ghi ra file tạm rồi đổi tên để không đọc phải file ghi dở
+	@Override
+	public void save(String cartId, CompactCart cart) {
+		Path file = file(cartId);
+		if (file == null) {
+			return;
+		}
+		try {
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			Files.write(tmp, cart.toBytes());
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void delete(String cartId) {
+		Path file = file(cartId);
+		if (file == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Scheduled(fixedDelay = 3600000)
+	public void expire() throws IOException {
+		long expired = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ttlDays);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.cart")) {
+			for (Path file : files) {
+				if (Files.getLastModifiedTime(file).toMillis() < expired) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	private Path file(String cartId) {
+		if (!CartStore.isValidCartId(cartId)) {
+			return null;
+		}
+		return dir.resolve(cartId + ".cart");
+	}
+}
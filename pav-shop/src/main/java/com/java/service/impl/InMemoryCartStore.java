@@ -0,0 +1,71 @@
+package com.java.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.java.service.CartStore;
+import com.java.service.CompactCart;
+
+// Lưu giỏ hàng trong bộ nhớ tiến trình dưới dạng byte[] đã mã hoá, mất khi khởi động lại.
+// Mã giỏ không hợp lệ (cookie bị sửa) bị bỏ qua, không tạo khoá tuỳ ý trong map.
+@Service
+@ConditionalOnProperty(name = "pavshop.cart.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCartStore implements CartStore {
+
+	@Value("${pavshop.cart.ttl-days:30}")
+	private long ttlDays;
+
+	private final Map<String, Entry> carts = new ConcurrentHashMap<String, Entry>();
+
+	@Override
+	public CompactCart load(String cartId) {
+		if (!CartStore.isValidCartId(cartId)) {
+			return null;
+		}
+		Entry entry = carts.get(cartId);
+		if (entry == null) {
+			return null;
+		}
+		entry.touchedAt = System.currentTimeMillis();
+		return CompactCart.fromBytes(entry.data);
+	}
+
+	@Override
+	public void save(String cartId, CompactCart cart) {
+		if (!CartStore.isValidCartId(cartId)) {
+			return;
+		}
+		carts.put(cartId, new Entry(cart.toBytes()));
+	}
+
+	@Override
+	public void delete(String cartId) {
+		if (!CartStore.isValidCartId(cartId)) {
+			return;
+		}
+		carts.remove(cartId);
+	}
+
+	// bỏ các giỏ không ai dùng quá ttl-days
+	@Scheduled(fixedDelay = 3600000)
+	public void expire() {
+		long expired = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ttlDays);
+		carts.values().removeIf(entry -> entry.touchedAt < expired);
+	}
+
+	private static final class Entry {
+
+		final byte[] data;
+		volatile long touchedAt = System.currentTimeMillis();
+
+		Entry(byte[] data) {
+			this.data = data;
+		}
+	}
+}
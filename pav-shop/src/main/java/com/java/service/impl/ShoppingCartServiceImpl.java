@@ -4,36 +4,46 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.annotation.SessionScope;
 
 import com.java.entity.CartItem;
+import com.java.entity.CartSummary;
 import com.java.entity.Product;
+import com.java.service.CartPricingService;
 import com.java.service.ShoppingCartService;
 
+// Giỏ hàng cũ giữ nguyên CartItem (kèm Product) trong session, bật bằng pavshop.cart.impl=session
 @Service
 @SessionScope
+@ConditionalOnProperty(name = "pavshop.cart.impl", havingValue = "session")
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
 	private Map<Integer, CartItem> map = new HashMap<Integer, CartItem>();
 
+	// tổng hợp cập nhật dần theo add / remove / clear
+	private CartSummary summary = CartSummary.EMPTY;
+
 	@Override
 	public int getCount() {
-		if (map.isEmpty()) {
-			return 0;
-		}
-		return map.values().size();
+		return summary.getCount();
 	}
 
 	@Override
 	public double getAmount() {
-		return map.values().stream().mapToDouble(item -> item.getQuantity() * item.getUnitPrice()).sum();
+		return summary.getAmount();
+	}
+
+	@Override
+	public CartSummary getSummary() {
+		return summary;
 	}
 
 	@Override
 	public void clear() {
 		map.clear();
-
+		summary = CartSummary.EMPTY;
 	}
 
 	@Override
@@ -43,7 +53,10 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
 
 	@Override
 	public void remove(CartItem item) {
-		map.remove(item.getProductId());
+		CartItem removed = map.remove(item.getProductId());
+		if (removed != null) {
+			apply(removed, -1);
+		}
 
 	}
 
@@ -51,10 +64,13 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
 	public void add(CartItem item) {
 		CartItem existedItem = map.get(item.getProductId());
 		if (existedItem != null) {
+			apply(existedItem, -1);
 			existedItem.setQuantity(item.getQuantity() + existedItem.getQuantity());
 			existedItem.setTotalPrice(item.getTotalPrice() + existedItem.getUnitPrice() * existedItem.getQuantity());
+			apply(existedItem, 1);
 		} else {
 			map.put(item.getProductId(), item);
+			apply(item, 1);
 		}
 
 	}
@@ -64,4 +80,55 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
 
 	}
 
+	@Override
+	public boolean update(int productId, int quantity) {
+		CartItem item = map.get(productId);
+		if (item == null) {
+			return false;
+		}
+		apply(item, -1);
+		item.setQuantity(quantity);
+		item.setTotalPrice(item.getUnitPrice() * quantity);
+		apply(item, 1);
+		return true;
+	}
+
+	// giảm giá của dòng lấy theo Product giữ trong session nên cập nhật luôn trên bản Product đó
+	@Override
+	public void reprice(Map<Integer, CartPricingService.Price> prices) {
+		for (Map.Entry<Integer, CartPricingService.Price> entry : prices.entrySet()) {
+			CartItem item = map.get(entry.getKey());
+			if (item == null) {
+				continue;
+			}
+			apply(item, -1);
+			item.setUnitPrice(entry.getValue().getPrice());
+			item.setTotalPrice(item.getUnitPrice() * item.getQuantity());
+			if (item.getProduct() != null) {
+				item.getProduct().setDiscount(entry.getValue().getDiscount());
+			}
+			apply(item, 1);
+		}
+	}
+
+	// giỏ trong session không lưu lâu dài, chỉ giỏ compact hỗ trợ giỏ theo khách hàng
+	@Override
+	public void attachCustomer(String customerId) {
+
+	}
+
+	// cộng (sign = 1) hoặc trừ (sign = -1) phần đóng góp của một dòng vào tổng hợp
+	private void apply(CartItem item, int sign) {
+		double line = item.getQuantity() * item.getUnitPrice();
+		double discount = item.getProduct() != null && item.getProduct().getDiscount() != null
+				? item.getProduct().getDiscount()
+				: 0;
+		int count = map.size();
+		if (count == 0) {
+			summary = CartSummary.EMPTY;
+			return;
+		}
+		summary = new CartSummary(count, summary.getQuantity() + sign * item.getQuantity(),
+				summary.getAmount() + sign * line, summary.getTotalPrice() + sign * (line - (line * discount / 100)));
+	}
 }
@@ -0,0 +1,135 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CheckoutIdempotencyStoreTests {
+
+	private static final String OWNER = "khach01@example.com";
+	private static final String KEY = "3f1c2a9e-5b7d-4c1e-9a2b-7d8e6f5a4b3c";
+
+	private static CheckoutIdempotencyStore store(int maxKeys, long ttlMinutes) {
+		CheckoutIdempotencyStore store = new CheckoutIdempotencyStore();
+		ReflectionTestUtils.setField(store, "maxKeys", maxKeys);
+		ReflectionTestUtils.setField(store, "ttlMinutes", ttlMinutes);
+		return store;
+	}
+
+	@Test
+	void validKeys() {
+		assertTrue(CheckoutIdempotencyStore.isValidKey(KEY));
+		assertFalse(CheckoutIdempotencyStore.isValidKey(null));
+		assertFalse(CheckoutIdempotencyStore.isValidKey("short"));
+		assertFalse(CheckoutIdempotencyStore.isValidKey("bad key with spaces"));
+	}
+
+	@Test
+	void duplicateGetsTheFirstResult() throws InterruptedException {
+		CheckoutIdempotencyStore store = store(100, 60);
+
+		assertNull(store.begin(OWNER, KEY));
+		store.complete(OWNER, KEY, 12, null);
+
+		CheckoutIdempotencyStore.Result result = store.begin(OWNER, KEY);
+		assertEquals(Integer.valueOf(12), result.getOrderId());
+		assertFalse(result.isPending());
+	}
+
+	// khách khác gửi cùng key: coi như key mới, không chờ và không nhận đơn của khách đầu
+	@Test
+	void keysAreScopedToTheirOwner() throws InterruptedException {
+		CheckoutIdempotencyStore store = store(100, 60);
+		assertNull(store.begin(OWNER, KEY));
+
+		assertNull(store.begin("khach02@example.com", KEY));
+		store.complete(OWNER, KEY, 12, null);
+		store.complete("khach02@example.com", KEY, 13, null);
+
+		assertEquals(Integer.valueOf(12), store.begin(OWNER, KEY).getOrderId());
+		assertEquals(Integer.valueOf(13), store.begin("khach02@example.com", KEY).getOrderId());
+	}
+
+	@Test
+	void waiterIsReleasedWhenTheFirstCompletes() throws Exception {
+		CheckoutIdempotencyStore store = store(100, 60);
+		assertNull(store.begin(OWNER, KEY));
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Future<CheckoutIdempotencyStore.Result> waiter = pool.submit(() -> store.begin(OWNER, KEY));
+			Thread.sleep(100);
+			assertFalse(waiter.isDone());
+
+			store.complete(OWNER, KEY, null, "ref-1");
+
+			assertEquals("ref-1", waiter.get(2, TimeUnit.SECONDS).getOrderReference());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// lần đầu thất bại: lần gửi đang chờ tiếp quản key thay vì nhận PENDING
+	@Test
+	void waiterTakesOverAnAbortedKey() throws Exception {
+		CheckoutIdempotencyStore store = store(100, 60);
+		assertNull(store.begin(OWNER, KEY));
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Future<CheckoutIdempotencyStore.Result> waiter = pool.submit(() -> store.begin(OWNER, KEY));
+			Thread.sleep(100);
+
+			store.abort(OWNER, KEY);
+
+			assertNull(waiter.get(2, TimeUnit.SECONDS));
+			// key giờ thuộc về lần gửi đã tiếp quản
+			store.complete(OWNER, KEY, 7, null);
+			assertEquals(Integer.valueOf(7), store.begin(OWNER, KEY).getOrderId());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void abortedKeyCanBeRetried() throws InterruptedException {
+		CheckoutIdempotencyStore store = store(100, 60);
+		assertNull(store.begin(OWNER, KEY));
+		store.abort(OWNER, KEY);
+
+		assertNull(store.begin(OWNER, KEY));
+	}
+
+	@Test
+	void expiredAndEvictedKeysStartOver() throws InterruptedException {
+		CheckoutIdempotencyStore expiring = store(100, 0);
+		assertNull(expiring.begin(OWNER, KEY));
+		expiring.complete(OWNER, KEY, 1, null);
+		Thread.sleep(5);
+		assertNull(expiring.begin(OWNER, KEY));
+
+		CheckoutIdempotencyStore small = store(1, 60);
+		assertNull(small.begin(OWNER, KEY));
+		small.complete(OWNER, KEY, 1, null);
+		assertNull(small.begin(OWNER, "another-key-0001"));
+		assertNull(small.begin(OWNER, KEY));
+	}
+
+	// controller bắt InterruptedException, khôi phục cờ interrupt và hiển thị lại form
+	@Test
+	void interruptedWaiterThrows() throws InterruptedException {
+		CheckoutIdempotencyStore store = store(100, 60);
+		assertNull(store.begin(OWNER, KEY));
+		Thread.currentThread().interrupt();
+
+		assertThrows(InterruptedException.class, () -> store.begin(OWNER, KEY));
+	}
+}
@@ -0,0 +1,132 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.java.entity.CartSummary;
+
+class CompactCartTests {
+
+	@Test
+	void addAccumulatesQuantityAndKeepsLatestPrice() {
+		CompactCart cart = new CompactCart();
+		cart.add(7, 1, 100, 0);
+		cart.add(7, 2, 80, 50);
+
+		assertEquals(1, cart.size());
+		assertEquals(3, cart.quantity(7));
+		assertEquals(240, cart.amount(), 1e-9);
+		assertEquals(120, cart.totalPrice(), 1e-9);
+	}
+
+	@Test
+	void setQuantityOnlyUpdatesExistingLines() {
+		CompactCart cart = new CompactCart();
+		cart.add(1, 1, 10, 10);
+
+		assertTrue(cart.setQuantity(1, 4));
+		assertFalse(cart.setQuantity(2, 4));
+		CartSummary summary = cart.summary();
+		assertEquals(1, summary.getCount());
+		assertEquals(4, summary.getQuantity());
+		assertEquals(40, summary.getAmount(), 1e-9);
+		assertEquals(36, summary.getTotalPrice(), 1e-9);
+	}
+
+	@Test
+	void setPriceRepricesRunningTotals() {
+		CompactCart cart = new CompactCart();
+		cart.add(1, 2, 100, 0);
+		cart.add(2, 1, 50, 10);
+
+		assertTrue(cart.setPrice(1, 120, 25));
+		assertFalse(cart.setPrice(1, 120, 25));
+		assertFalse(cart.setPrice(3, 10, 0));
+		assertEquals(2, cart.quantity(1));
+		assertEquals(290, cart.amount(), 1e-9);
+		assertEquals(225, cart.totalPrice(), 1e-9);
+	}
+
+	// thêm / xoá ngẫu nhiên qua nhiều lần rehash và xoá dời lùi, so với HashMap
+	@Test
+	void openAddressingMatchesHashMap() {
+		Random random = new Random(42);
+		CompactCart cart = new CompactCart();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 20000; i++) {
+			// id liên tiếp và id cách nhau bội số lớn để có cả cụm dò dài
+			int productId = random.nextBoolean() ? 1 + random.nextInt(64) : (1 + random.nextInt(64)) * 1024;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(productId) != null, cart.remove(productId));
+			} else {
+				cart.add(productId, 1, 1, 0);
+				expected.merge(productId, 1, Integer::sum);
+			}
+			assertEquals(expected.size(), cart.size());
+		}
+		int total = 0;
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			assertTrue(cart.contains(entry.getKey()));
+			assertEquals((int) entry.getValue(), cart.quantity(entry.getKey()));
+			total += entry.getValue();
+		}
+		assertEquals(total, cart.totalQuantity());
+		assertEquals(total, cart.amount(), 1e-6);
+		int[] ids = cart.productIds();
+		Arrays.sort(ids);
+		assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), ids);
+	}
+
+	@Test
+	void removingLastLineResetsTotals() {
+		CompactCart cart = new CompactCart();
+		cart.add(1, 3, 0.1, 33);
+		cart.add(2, 7, 0.7, 0);
+		cart.remove(1);
+		cart.remove(2);
+
+		assertTrue(cart.isEmpty());
+		assertEquals(0, cart.totalQuantity());
+		assertEquals(0.0, cart.amount(), 0.0);
+		assertEquals(0.0, cart.totalPrice(), 0.0);
+	}
+
+	@Test
+	void bytesRoundTrip() {
+		CompactCart cart = new CompactCart();
+		for (int productId = 1; productId <= 20; productId++) {
+			cart.add(productId, productId, productId * 1.5, productId % 3 * 10);
+		}
+
+		CompactCart copy = CompactCart.fromBytes(cart.toBytes());
+
+		assertEquals(cart.size(), copy.size());
+		assertEquals(cart.totalQuantity(), copy.totalQuantity());
+		assertEquals(cart.amount(), copy.amount(), 1e-9);
+		assertEquals(cart.totalPrice(), copy.totalPrice(), 1e-9);
+		cart.forEach((productId, quantity, price, discount) -> assertEquals(quantity, copy.quantity(productId)));
+		assertEquals(4, CompactCart.fromBytes(new CompactCart().toBytes()).toBytes().length);
+	}
+
+	@Test
+	void clearEmptiesTheCart() {
+		CompactCart cart = new CompactCart();
+		for (int productId = 1; productId <= 50; productId++) {
+			cart.add(productId, 1, 2, 0);
+		}
+		cart.clear();
+
+		assertTrue(cart.isEmpty());
+		assertFalse(cart.contains(1));
+		assertEquals(CartSummary.EMPTY.getAmount(), cart.summary().getAmount(), 0.0);
+	}
+}
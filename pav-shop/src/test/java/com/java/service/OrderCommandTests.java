@@ -0,0 +1,107 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.java.entity.Customer;
+import com.java.entity.Order;
+import com.java.entity.OrderDetail;
+import com.java.entity.Product;
+
+class OrderCommandTests {
+
+	private static byte[] bytes(OrderCommand command) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		command.writeTo(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static OrderCommand read(byte[] bytes) throws IOException {
+		return OrderCommand.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	private static OrderDetail line(int productId, int quantity, double price, Double discount) {
+		Product product = new Product();
+		product.setProductId(productId);
+		OrderDetail orderDetail = new OrderDetail();
+		orderDetail.setProduct(product);
+		orderDetail.setQuantity(quantity);
+		orderDetail.setPrice(price);
+		orderDetail.setDiscount(discount);
+		orderDetail.setStatus("0");
+		orderDetail.setTotalPrice(quantity * price);
+		return orderDetail;
+	}
+
+	@Test
+	void journalRecordRoundTrips() throws IOException {
+		Customer customer = new Customer();
+		customer.setCustomerId("khach01");
+		Order order = new Order();
+		order.setCustomer(customer);
+		order.setPhone("0901234567");
+		order.setOrderDate(new Date(1700000000000L));
+		order.setReceiver("Nguyễn Văn A");
+		order.setAddress("12 Lê Lợi, Quận 1");
+		order.setAmount(300.0);
+		order.setTotalPrice(270.0);
+		order.setIdempotencyKey("9f1c2d3e-0000-4000-8000-000000000001");
+
+		OrderCommand command = read(bytes(OrderCommand.of("ref-1",
+				order, Arrays.asList(line(7, 2, 100, 10.0), line(9, 1, 100, null)))));
+
+		assertEquals("ref-1", command.getReference());
+		Order copy = command.getOrder();
+		assertEquals("khach01", copy.getCustomer().getCustomerId());
+		assertEquals("0901234567", copy.getPhone());
+		assertEquals(new Date(1700000000000L), copy.getOrderDate());
+		assertNull(copy.getRequireDate());
+		assertEquals("Nguyễn Văn A", copy.getReceiver());
+		assertEquals("12 Lê Lợi, Quận 1", copy.getAddress());
+		assertNull(copy.getDescription());
+		assertEquals(300.0, copy.getAmount(), 0.0);
+		assertEquals(270.0, copy.getTotalPrice(), 0.0);
+		assertEquals("9f1c2d3e-0000-4000-8000-000000000001", copy.getIdempotencyKey());
+
+		assertEquals(2, command.getOrderDetails().size());
+		OrderDetail first = command.getOrderDetails().get(0);
+		assertEquals(7, (int) first.getProduct().getProductId());
+		assertEquals(2, (int) first.getQuantity());
+		assertEquals(100.0, first.getPrice(), 0.0);
+		assertEquals(10.0, first.getDiscount(), 0.0);
+		assertEquals("0", first.getStatus());
+		assertEquals(200.0, first.getTotalPrice(), 0.0);
+		assertSame(copy, first.getOrder());
+		assertNull(command.getOrderDetails().get(1).getDiscount());
+	}
+
+	@Test
+	void anonymousOrderHasNoCustomer() throws IOException {
+		OrderCommand command = read(bytes(OrderCommand.of("ref-2", new Order(), Arrays.asList(line(1, 1, 5, 0.0)))));
+
+		assertNull(command.getOrder().getCustomer());
+		assertEquals(1, command.getOrderDetails().size());
+	}
+
+	@Test
+	void unknownFormatVersionIsRejected() throws IOException {
+		byte[] bytes = bytes(OrderCommand.of("ref-3", new Order(), Arrays.asList(line(1, 1, 5, 0.0))));
+		bytes[3] = 99;
+
+		assertThrows(IOException.class, () -> read(bytes));
+	}
+}
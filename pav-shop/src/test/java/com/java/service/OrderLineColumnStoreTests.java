@@ -0,0 +1,177 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class OrderLineColumnStoreTests {
+
+	// hơn ba đoạn CHUNK để ForkJoinPool phải chia và hợp nhiều kết quả riêng
+	private static final int LINES = 3 * (1 << 16) + 123;
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+
+	// cột giống SELECT_LINES: orderDetailId, productId, categoryId, brandId, customerId, orderDate,
+	// quantity, price, total_price
+	private static List<Object[]> lines() {
+		List<Object[]> lines = new ArrayList<Object[]>(LINES);
+		for (int i = 1; i <= LINES; i++) {
+			int quantity = 1 + i % 5;
+			double price = 10 + i % 13;
+			lines.add(new Object[] { i, 1 + i % 40, 1 + i % 6, 1 + i % 9, i % 50 == 0 ? null : "c" + i % 7,
+					java.sql.Date.valueOf(FIRST_DAY.plusDays(i % 400)), quantity, price,
+					quantity * price * (1 - i % 4 * 0.1) });
+		}
+		return lines;
+	}
+
+	private static OrderLineColumnStore store(List<Object[]> lines) {
+		OrderLineColumnStore store = new OrderLineColumnStore();
+		// init() dựng JdbcTemplate đọc dạng stream trên cùng DataSource, được thay bằng bản đọc từ lines
+		store.jdbcTemplate = new JdbcTemplate(mock(DataSource.class));
+		store.init();
+		ReflectionTestUtils.setField(store, "streamingTemplate", new JdbcTemplate() {
+			@Override
+			public void query(String sql, RowCallbackHandler rch, Object... args) {
+				int after = (Integer) args[0];
+				try {
+					for (Object[] line : lines) {
+						if ((Integer) line[0] > after) {
+							rch.processRow(resultSet(line));
+						}
+					}
+				} catch (SQLException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		store.refresh();
+		return store;
+	}
+
+	private static ResultSet resultSet(Object[] line) {
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, method, args) -> line[(Integer) args[0] - 1]);
+	}
+
+	// { count, quantity, sum, min, max } theo nhãn, tính tuần tự để đối chiếu
+	private static Map<String, double[]> expected(List<Object[]> lines) {
+		Map<String, double[]> groups = new HashMap<String, double[]>();
+		for (Object[] line : lines) {
+			LocalDate date = ((java.sql.Date) line[5]).toLocalDate();
+			String label = (line[4] == null ? "-" : (String) line[4])
+					+ String.format(" / %d-%02d", date.getYear(), date.getMonthValue());
+			double value = (Double) line[8];
+			double[] group = groups.computeIfAbsent(label,
+					k -> new double[] { 0, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY });
+			group[0]++;
+			group[1] += (Integer) line[6];
+			group[2] += value;
+			group[3] = Math.min(group[3], value);
+			group[4] = Math.max(group[4], value);
+		}
+		return groups;
+	}
+
+	@Test
+	void parallelMergeMatchesSequentialAggregation() {
+		List<Object[]> lines = lines();
+		OrderLineColumnStore store = store(lines);
+		try {
+			assertEquals(LINES, store.size());
+
+			List<Object[]> rows = store.aggregate(Arrays.asList("customer", "month"), "totalPrice", null, null);
+
+			Map<String, double[]> expected = expected(lines);
+			assertEquals(expected.size(), rows.size());
+			for (Object[] row : rows) {
+				double[] group = expected.get(row[0]);
+				assertNotNull(group, String.valueOf(row[0]));
+				assertEquals((long) group[1], ((Number) row[1]).longValue());
+				assertEquals(group[2], (Double) row[2], 1e-6 * group[2]);
+				assertEquals(group[2] / group[0], (Double) row[3], 1e-6 * group[2]);
+				assertEquals(group[3], (Double) row[4], 0.0);
+				assertEquals(group[4], (Double) row[5], 0.0);
+			}
+		} finally {
+			store.shutdown();
+		}
+	}
+
+	@Test
+	void dateRangeAndDeletedLinesAreSkipped() {
+		List<Object[]> lines = lines();
+		OrderLineColumnStore store = store(lines);
+		try {
+			LocalDate from = FIRST_DAY.plusDays(100);
+			LocalDate to = FIRST_DAY.plusDays(200);
+			long quantity = 0;
+			for (Object[] line : lines) {
+				LocalDate date = ((java.sql.Date) line[5]).toLocalDate();
+				int id = (Integer) line[0];
+				if (id % 10 == 0) {
+					store.remove(id);
+				} else if (!date.isBefore(from) && date.isBefore(to)) {
+					quantity += (Integer) line[6];
+				}
+			}
+
+			List<Object[]> rows = store.aggregate(Collections.<String>emptyList(), "quantity", from, to);
+
+			assertEquals(1, rows.size());
+			assertEquals("Tất cả", rows.get(0)[0]);
+			assertEquals(quantity, ((Number) rows.get(0)[1]).longValue());
+			assertEquals((double) quantity, (Double) rows.get(0)[2], 0.0);
+		} finally {
+			store.shutdown();
+		}
+	}
+
+	// refresh đọc lại đoạn đuôi TAIL_MARGIN nhưng không nạp trùng dòng đã có
+	@Test
+	void refreshDoesNotDuplicateLines() {
+		List<Object[]> lines = new ArrayList<Object[]>(lines().subList(0, 5000));
+		OrderLineColumnStore store = store(lines);
+		try {
+			lines.add(new Object[] { 5001, 1, 1, 1, "c1", java.sql.Date.valueOf(FIRST_DAY), 2, 10.0, 20.0 });
+			store.refresh();
+			store.refresh();
+
+			assertEquals(5001, store.size());
+		} finally {
+			store.shutdown();
+		}
+	}
+
+	@Test
+	void rejectsUnknownOrTooManyFields() {
+		OrderLineColumnStore store = store(Collections.<Object[]>emptyList());
+		try {
+			assertThrows(IllegalArgumentException.class,
+					() -> store.aggregate(Arrays.asList("brand", "month", "year"), "quantity", null, null));
+			assertThrows(IllegalArgumentException.class,
+					() -> store.aggregate(Arrays.asList("colour"), "quantity", null, null));
+		} finally {
+			store.shutdown();
+		}
+	}
+}
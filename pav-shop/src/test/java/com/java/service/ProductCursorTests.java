@@ -0,0 +1,51 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class ProductCursorTests {
+
+	@Test
+	void encodeDecodeRoundTrip() {
+		ProductCursor cursor = new ProductCursor(java.sql.Date.valueOf("2021-09-15"), 42);
+
+		ProductCursor decoded = ProductCursor.decode(cursor.encode());
+
+		assertEquals("2021-09-15", decoded.getEnteredDate().toString());
+		assertEquals(42, decoded.getProductId());
+	}
+
+	@Test
+	void undatedProductRoundTrip() {
+		ProductCursor decoded = ProductCursor.decode(new ProductCursor(null, 7).encode());
+
+		assertNull(decoded.getEnteredDate());
+		assertEquals(7, decoded.getProductId());
+	}
+
+	// token nằm trong query string nên không được có ký tự phải escape
+	@Test
+	void encodedTokenIsUrlSafe() {
+		String token = new ProductCursor(java.sql.Date.valueOf("2020-01-01"), Integer.MAX_VALUE).encode();
+
+		assertFalse(token.contains("+") || token.contains("/") || token.contains("="), token);
+	}
+
+	@Test
+	void invalidTokenDecodesToNull() {
+		assertNull(ProductCursor.decode(null));
+		assertNull(ProductCursor.decode(""));
+		assertNull(ProductCursor.decode("!!!"));
+		assertNull(ProductCursor.decode(encode("no-separator")));
+		assertNull(ProductCursor.decode(encode("2021-13-45|1")));
+		assertNull(ProductCursor.decode(encode("2021-01-01|abc")));
+	}
+
+	private static String encode(String raw) {
+		return java.util.Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(raw.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+	}
+}
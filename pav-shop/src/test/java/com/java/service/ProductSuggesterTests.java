@@ -0,0 +1,100 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.java.entity.Product;
+import com.java.entity.ProductSuggestion;
+import com.java.repository.OrderDetailRepository;
+import com.java.repository.ProductRepository;
+
+class ProductSuggesterTests {
+
+	// productId, tên, số lượng đã bán
+	private static final Object[][] CATALOG = {
+			{ 1, "Túi xách da", 5L },
+			{ 2, "Túi đeo chéo", 50L },
+			{ 3, "Tủ lạnh mini", 10L },
+			{ 4, "Ví da nam", 0L } };
+
+	private ProductSuggester suggester() {
+		List<Object[]> names = new ArrayList<Object[]>();
+		List<Object[]> sales = new ArrayList<Object[]>();
+		for (Object[] row : CATALOG) {
+			names.add(new Object[] { row[0], row[1] });
+			sales.add(new Object[] { row[0], row[2] });
+		}
+		ProductSuggester suggester = new ProductSuggester();
+		suggester.productRepository = mock(ProductRepository.class);
+		suggester.orderDetailRepository = mock(OrderDetailRepository.class);
+		when(suggester.productRepository.listProductName()).thenReturn(names);
+		when(suggester.orderDetailRepository.sumQuantityByProduct()).thenReturn(sales);
+		suggester.rebuild();
+		return suggester;
+	}
+
+	private static List<Integer> ids(List<ProductSuggestion> suggestions) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (ProductSuggestion suggestion : suggestions) {
+			ids.add(suggestion.getProductId());
+		}
+		return ids;
+	}
+
+	// "tu" đi qua cạnh bị tách giữa "tui ..." và "tu lanh", kết quả xếp theo số lượng bán
+	@Test
+	void prefixAcrossSplitEdgesRanksBySales() {
+		ProductSuggester suggester = suggester();
+
+		assertEquals(Arrays.asList(2, 3, 1), ids(suggester.suggest("tu", 10)));
+		assertEquals(Arrays.asList(2, 1), ids(suggester.suggest("tui", 10)));
+		assertEquals(Arrays.asList(1), ids(suggester.suggest("tui x", 10)));
+	}
+
+	@Test
+	void matchesWordStartsWithoutDiacritics() {
+		ProductSuggester suggester = suggester();
+
+		assertEquals(Arrays.asList(1, 4), ids(suggester.suggest("DA", 10)));
+		assertEquals(Arrays.asList(3), ids(suggester.suggest("lạnh", 10)));
+		assertEquals("Tủ lạnh mini", suggester.suggest("mini", 10).get(0).getName());
+	}
+
+	@Test
+	void respectsLimitAndMisses() {
+		ProductSuggester suggester = suggester();
+
+		assertEquals(Arrays.asList(2), ids(suggester.suggest("tu", 1)));
+		assertTrue(suggester.suggest("xyz", 10).isEmpty());
+		assertTrue(suggester.suggest("tui xo", 10).isEmpty());
+		assertTrue(suggester.suggest("  ", 10).isEmpty());
+	}
+
+	@Test
+	void indexAndRemoveUpdateSuggestions() {
+		ProductSuggester suggester = suggester();
+		Product renamed = new Product();
+		renamed.setProductId(4);
+		renamed.setName("Thắt lưng da");
+		Product added = new Product();
+		added.setProductId(5);
+		added.setName("Túi du lịch");
+
+		suggester.index(renamed);
+		suggester.index(added);
+		suggester.remove(1);
+
+		// tên cũ "vi da nam" không còn khớp, sản phẩm đã xoá bị bỏ qua
+		assertTrue(suggester.suggest("vi", 10).isEmpty());
+		assertEquals(Arrays.asList(4), ids(suggester.suggest("that", 10)));
+		assertEquals(Arrays.asList(2, 5), ids(suggester.suggest("tui", 10)));
+	}
+}
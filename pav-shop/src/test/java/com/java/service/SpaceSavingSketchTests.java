@@ -0,0 +1,105 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SpaceSavingSketchTests {
+
+	private static Map<Integer, Integer> slots(SpaceSavingSketch sketch) {
+		Map<Integer, Integer> slots = new HashMap<Integer, Integer>();
+		for (int i = 0; i < sketch.size(); i++) {
+			slots.put(sketch.key(i), i);
+		}
+		return slots;
+	}
+
+	@Test
+	void countsAreExactWhileUnderCapacity() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+		sketch.add(1, 3);
+		sketch.add(2, 5);
+		sketch.add(1, 4);
+		sketch.add(3, 0);
+		sketch.add(3, -2);
+
+		Map<Integer, Integer> slots = slots(sketch);
+		assertEquals(2, sketch.size());
+		assertEquals(7, sketch.count(slots.get(1)));
+		assertEquals(5, sketch.count(slots.get(2)));
+		assertEquals(0, sketch.error(slots.get(1)));
+		assertEquals(12, sketch.total());
+	}
+
+	// khi đầy, khoá mới thay bộ đếm nhỏ nhất và thừa kế giá trị đó làm error
+	@Test
+	void newKeyReplacesTheSmallestCounter() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+		sketch.add(1, 10);
+		sketch.add(2, 3);
+		sketch.add(3, 1);
+
+		Map<Integer, Integer> slots = slots(sketch);
+		assertEquals(2, sketch.size());
+		assertTrue(slots.containsKey(1));
+		assertTrue(slots.containsKey(3));
+		assertEquals(4, sketch.count(slots.get(3)));
+		assertEquals(3, sketch.error(slots.get(3)));
+	}
+
+	// luồng lệch (vài sản phẩm bán chạy giữa nhiều sản phẩm lẻ tẻ): mọi bộ đếm bao số thật,
+	// mọi sản phẩm có số thật > tổng / capacity đều còn trong sketch
+	@Test
+	void boundsHoldOnASkewedStream() {
+		int capacity = 32;
+		SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+		Map<Integer, Long> truth = new HashMap<Integer, Long>();
+		Random random = new Random(7);
+		long total = 0;
+		for (int i = 0; i < 100000; i++) {
+			int key = random.nextInt(4) == 0 ? random.nextInt(5) : 100 + random.nextInt(5000);
+			long weight = 1 + random.nextInt(3);
+			sketch.add(key, weight);
+			truth.merge(key, weight, Long::sum);
+			total += weight;
+		}
+
+		assertEquals(total, sketch.total());
+		assertEquals(capacity, sketch.size());
+		Map<Integer, Integer> slots = slots(sketch);
+		for (int i = 0; i < sketch.size(); i++) {
+			long actual = truth.getOrDefault(sketch.key(i), 0L);
+			assertTrue(sketch.count(i) >= actual, "count >= actual for " + sketch.key(i));
+			assertTrue(sketch.count(i) - sketch.error(i) <= actual, "count - error <= actual for " + sketch.key(i));
+		}
+		for (Map.Entry<Integer, Long> entry : truth.entrySet()) {
+			if (entry.getValue() > total / capacity) {
+				assertTrue(slots.containsKey(entry.getKey()), "heavy hitter " + entry.getKey());
+			}
+		}
+		for (int key = 0; key < 5; key++) {
+			assertTrue(slots.containsKey(key), "top product " + key);
+		}
+	}
+
+	@Test
+	void clearEmptiesTheSketch() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+		sketch.add(1, 1);
+		sketch.add(2, 1);
+		sketch.add(3, 1);
+		sketch.clear();
+
+		assertEquals(0, sketch.size());
+		assertEquals(0, sketch.total());
+		sketch.add(4, 2);
+		assertEquals(4, sketch.key(0));
+		assertEquals(2, sketch.count(0));
+		assertEquals(0, sketch.error(0));
+	}
+}
@@ -0,0 +1,274 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.web.authentication.session.SessionFixationProtectionEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.java.entity.Product;
+import com.java.repository.ProductRepository;
+
+class StockReservationServiceTests {
+
+	private static final int PRODUCT = 1;
+	private static final int UNMANAGED = 2;
+
+	// các batch UPDATE quantity = quantity + delta đã gửi xuống DB: { delta, productId }
+	private final List<Object[]> flushed = new ArrayList<Object[]>();
+
+	private final ProductFacetIndex productFacetIndex = new ProductFacetIndex();
+
+	private StockReservationService service(int quantity) {
+		StockReservationService service = new StockReservationService();
+		service.productRepository = mock(ProductRepository.class);
+		when(service.productRepository.listProductStock())
+				.thenReturn(Arrays.asList(new Object[] { PRODUCT, quantity }, new Object[] { UNMANAGED, null }));
+		service.jdbcTemplate = new JdbcTemplate() {
+			@Override
+			public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+				flushed.addAll(batchArgs);
+				return new int[batchArgs.size()];
+			}
+		};
+		service.productFacetIndex = productFacetIndex;
+		service.load();
+		productFacetIndex.index(product(PRODUCT, quantity));
+		return service;
+	}
+
+	private static Product product(int productId, Integer quantity) {
+		Product product = new Product();
+		product.setProductId(productId);
+		product.setQuantity(quantity);
+		return product;
+	}
+
+	private List<Integer> inStock() {
+		return productFacetIndex.productIdsOf(productFacetIndex.filter(new ProductFilter().setInStock(true)));
+	}
+
+	@Test
+	void reserveNeverOversells() {
+		StockReservationService service = service(3);
+
+		assertTrue(service.reserve("a", PRODUCT, 2));
+		assertFalse(service.reserve("b", PRODUCT, 2));
+		assertTrue(service.reserve("b", PRODUCT, 1));
+		assertFalse(service.reserve("c", PRODUCT, 1));
+
+		assertEquals(0, (int) service.available(PRODUCT));
+		assertEquals(2, service.reserved("a", PRODUCT));
+		assertEquals(0, service.reserved("c", PRODUCT));
+	}
+
+	// compareAndSet: nhiều luồng tranh nhau cũng chỉ giữ được đúng số tồn kho
+	@Test
+	void concurrentReservationsTakeExactlyTheStock() throws InterruptedException {
+		StockReservationService service = service(100);
+		AtomicInteger granted = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			String owner = "owner-" + t;
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int i = 0; i < 1000; i++) {
+					if (service.reserve(owner, PRODUCT, 1)) {
+						granted.incrementAndGet();
+					}
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+		assertEquals(100, granted.get());
+		assertEquals(0, (int) service.available(PRODUCT));
+		int held = 0;
+		for (int t = 0; t < 8; t++) {
+			held += service.reserved("owner-" + t, PRODUCT);
+		}
+		assertEquals(100, held);
+	}
+
+	// reserve chạy song song với commit / expire của cùng owner: không phần giữ nào rơi vào map đã bị gỡ,
+	// cuối cùng mọi phần đã giữ hoặc thành phần đã bán hoặc được trả lại
+	@Test
+	void holdsRacingCommitAndExpireAreNeverLost() throws InterruptedException {
+		StockReservationService service = service(1000000);
+		// TTL = 0: mọi phần giữ đều hết hạn ở lần expire kế tiếp
+		ReflectionTestUtils.setField(service, "ttlMinutes", 0L);
+		AtomicBoolean done = new AtomicBoolean();
+		ExecutorService cleaners = Executors.newFixedThreadPool(2);
+		cleaners.execute(() -> {
+			while (!done.get()) {
+				service.commit("a");
+			}
+		});
+		cleaners.execute(() -> {
+			while (!done.get()) {
+				service.expire();
+			}
+		});
+		ExecutorService reservers = Executors.newFixedThreadPool(2);
+		for (int t = 0; t < 2; t++) {
+			reservers.execute(() -> {
+				for (int i = 0; i < 20000; i++) {
+					service.reserve("a", PRODUCT, 1);
+					service.reserve("b", PRODUCT, 1);
+				}
+			});
+		}
+		reservers.shutdown();
+		assertTrue(reservers.awaitTermination(30, TimeUnit.SECONDS));
+		done.set(true);
+		cleaners.shutdown();
+		assertTrue(cleaners.awaitTermination(30, TimeUnit.SECONDS));
+		service.commit("a");
+		service.expire();
+		service.flush();
+
+		int sold = 0;
+		for (Object[] delta : flushed) {
+			sold -= (Integer) delta[0];
+		}
+		assertEquals(0, service.reserved("b", PRODUCT));
+		assertEquals(1000000, service.available(PRODUCT) + sold);
+	}
+
+	@Test
+	void releaseAndReserveExactlyGiveStockBack() {
+		StockReservationService service = service(10);
+		service.reserve("a", PRODUCT, 4);
+
+		assertTrue(service.reserveExactly("a", PRODUCT, 6));
+		assertEquals(4, (int) service.available(PRODUCT));
+		assertTrue(service.reserveExactly("a", PRODUCT, 1));
+		assertEquals(9, (int) service.available(PRODUCT));
+		assertFalse(service.reserveExactly("a", PRODUCT, 11));
+
+		service.release("a", PRODUCT);
+		assertEquals(10, (int) service.available(PRODUCT));
+		assertEquals(0, service.reserved("a", PRODUCT));
+	}
+
+	@Test
+	void commitIsFlushedAsOneDelta() {
+		StockReservationService service = service(10);
+		service.reserve("a", PRODUCT, 2);
+		service.reserve("b", PRODUCT, 3);
+
+		service.commit("a");
+		service.commit("b");
+		service.flush();
+
+		assertEquals(1, flushed.size());
+		assertEquals(-5, flushed.get(0)[0]);
+		assertEquals(PRODUCT, flushed.get(0)[1]);
+		assertEquals(5, (int) service.available(PRODUCT));
+
+		// không còn gì để ghi
+		service.flush();
+		assertEquals(1, flushed.size());
+	}
+
+	// đơn đã commit nhưng hàng đợi ghi đơn báo lỗi: trả lại hàng, không ghi phần đã bán
+	@Test
+	void cancelUndoesACommittedSale() {
+		StockReservationService service = service(10);
+		service.reserve("a", PRODUCT, 4);
+		service.commit("a");
+
+		service.cancel(PRODUCT, 4);
+		service.flush();
+
+		assertEquals(10, (int) service.available(PRODUCT));
+		assertTrue(flushed.isEmpty());
+	}
+
+	// admin đặt lại tồn kho: phần đang giữ và phần đã bán chưa flush vẫn được tính
+	@Test
+	void reloadKeepsHoldsAndUnflushedSales() {
+		StockReservationService service = service(10);
+		service.reserve("a", PRODUCT, 3);
+		service.reserve("b", PRODUCT, 2);
+		service.commit("b");
+
+		service.reload(product(PRODUCT, 20));
+
+		assertEquals(15, (int) service.available(PRODUCT));
+		assertEquals(3, service.reserved("a", PRODUCT));
+		service.flush();
+		assertEquals(Collections.singletonList(-2), Arrays.asList(flushed.get(0)[0]));
+
+		// DB còn 18, vẫn giữ 3 cho a
+		service.reload(product(PRODUCT, 18));
+		assertEquals(15, (int) service.available(PRODUCT));
+	}
+
+	@Test
+	void unmanagedStockIsAlwaysAvailable() {
+		StockReservationService service = service(0);
+
+		assertTrue(service.reserve("a", UNMANAGED, 1000));
+		assertNull(service.available(UNMANAGED));
+	}
+
+	@Test
+	void sessionIdChangeMovesHolds() {
+		StockReservationService service = service(10);
+		service.reserve("old", PRODUCT, 2);
+		service.reserve("new", PRODUCT, 1);
+
+		service.onSessionIdChanged(
+				new SessionFixationProtectionEvent(new TestingAuthenticationToken("user", "pw"), "old", "new"));
+
+		assertEquals(0, service.reserved("old", PRODUCT));
+		assertEquals(3, service.reserved("new", PRODUCT));
+		assertEquals(7, (int) service.available(PRODUCT));
+	}
+
+	// bộ lọc "còn hàng" theo phần còn giữ được, không theo products.quantity
+	@Test
+	void inStockFacetFollowsReservations() {
+		StockReservationService service = service(2);
+		assertEquals(Collections.singletonList(PRODUCT), inStock());
+
+		service.reserve("a", PRODUCT, 2);
+		assertTrue(inStock().isEmpty());
+
+		service.release("a", PRODUCT, 1);
+		assertEquals(Collections.singletonList(PRODUCT), inStock());
+
+		service.reserve("b", PRODUCT, 1);
+		service.commit("b");
+		assertTrue(inStock().isEmpty());
+		service.cancel(PRODUCT, 1);
+		assertEquals(Collections.singletonList(PRODUCT), inStock());
+	}
+}
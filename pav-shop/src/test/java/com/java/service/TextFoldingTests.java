@@ -0,0 +1,41 @@
+package com.java.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class TextFoldingTests {
+
+	@Test
+	void foldStripsVietnameseDiacriticsAndLowercases() {
+		assertEquals("tui xach da", TextFolding.fold("Túi Xách Da"));
+		assertEquals("ao khoac nu", TextFolding.fold("Áo khoác nữ"));
+		assertEquals("giay the thao", TextFolding.fold("Giày thể thao"));
+	}
+
+	// "đ" không có dạng tách dấu trong Unicode nên được thay riêng
+	@Test
+	void foldReplacesDStroke() {
+		assertEquals("dong ho deo tay", TextFolding.fold("Đồng hồ đeo tay"));
+	}
+
+	@Test
+	void foldOfNullIsEmpty() {
+		assertEquals("", TextFolding.fold(null));
+	}
+
+	@Test
+	void tokenizeSplitsOnAnythingButLettersAndDigits() {
+		assertEquals(Arrays.asList("ao", "so", "mi", "size", "xl", "2021"),
+				TextFolding.tokenize("  Áo sơ-mi (size XL), 2021! "));
+	}
+
+	@Test
+	void tokenizeOfBlankIsEmpty() {
+		assertTrue(TextFolding.tokenize("  --  ").isEmpty());
+		assertTrue(TextFolding.tokenize(null).isEmpty());
+	}
+}